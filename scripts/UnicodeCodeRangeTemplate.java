@@ -19,28 +19,71 @@
  */
 package org.jcodings.unicode;
 
+import java.util.HashMap;
+
 import org.jcodings.util.ArrayReader;
-import org.jcodings.CodeRange;
+import org.jcodings.util.TableCache;
 
 public enum UnicodeCodeRange {
 %{extcrs};
 
     private final String table;
     final byte[]name;
-    private int[]range;
+    private final TableCache.Handle<int[]>range;
+    private final TableCache.Handle<CompactCodeRange>compact;
 
     private UnicodeCodeRange(String name, String table) {
         this.table = table;
         this.name = name.getBytes();
+        this.range = RangeHandles.get(table);
+        this.compact = RangeHandles.getCompact(table, range);
+    }
+
+    // constants aliasing the same table (e.g. OTHER/C, CC/CNTRL) share one handle
+    private static final class RangeHandles {
+        private static final HashMap<String, TableCache.Handle<int[]>> handles = new HashMap<String, TableCache.Handle<int[]>>();
+        private static final HashMap<String, TableCache.Handle<CompactCodeRange>> compactHandles = new HashMap<String, TableCache.Handle<CompactCodeRange>>();
+
+        static TableCache.Handle<int[]> get(final String table) {
+            TableCache.Handle<int[]> handle = handles.get(table);
+            if (handle == null) {
+                handles.put(table, handle = new TableCache.Handle<int[]>() {
+                    protected int[] load() {
+                        return ArrayReader.readIntArray(table);
+                    }
+
+                    protected long sizeOf(int[] range) {
+                        return (long)range.length << 2;
+                    }
+                });
+            }
+            return handle;
+        }
+
+        // membership checks only need the compact form, the int array is loaded for ctypeCodeRange callers
+        static TableCache.Handle<CompactCodeRange> getCompact(final String table, final TableCache.Handle<int[]> range) {
+            TableCache.Handle<CompactCodeRange> handle = compactHandles.get(table);
+            if (handle == null) {
+                compactHandles.put(table, handle = new TableCache.Handle<CompactCodeRange>() {
+                    protected CompactCodeRange load() {
+                        return CompactCodeRange.of(range.isResident() ? range.get() : ArrayReader.readIntArray(table));
+                    }
+
+                    protected long sizeOf(CompactCodeRange compact) {
+                        return compact.size();
+                    }
+                });
+            }
+            return handle;
+        }
     }
 
     int[]getRange() {
-        if (range == null) range = ArrayReader.readIntArray(table);
-        return range;
+        return range.get();
     }
 
     public boolean contains(int code) {
-        return CodeRange.isInCodeRange(range, code);
+        return compact.get().contains(code);
     }
 
     public int getCType() {
@@ -20,6 +20,7 @@ def generate_data
     generate_coderange_data
     generate_coderange_list
     generate_fold_data
+    dedup_tables
 end
 
 def process_binary obj_name
@@ -288,4 +289,24 @@ def generate_fold_data
     end
 end
 
+def dedup_tables
+    require 'digest'
+    seen = {}
+    aliases = []
+    Dir["#{DST_BIN_DIR}/*.bin"].sort.each do |file|
+        name = File.basename(file, ".bin")
+        digest = Digest::SHA256.file(file).hexdigest
+        if seen[digest]
+            aliases << "#{name}=#{seen[digest]}"
+            File.delete(file)
+        else
+            seen[digest] = name
+        end
+    end
+    open("#{DST_BIN_DIR}/TableAliases.properties", "wb") do |f|
+        f << "# tables with byte identical payloads, generated by scripts/generate.rb\n"
+        aliases.each{|a| f << a << "\n"}
+    end
+end
+
 generate_data
@@ -9,4 +9,6 @@ open module org.jruby.jcodings {
     exports org.jcodings.transcode.specific;
     exports org.jcodings.unicode;
     exports org.jcodings.util;
+
+    requires static java.management;
 }
\ No newline at end of file
@@ -20,6 +20,7 @@
 package org.jcodings;
 
 import org.jcodings.ascii.AsciiTables;
+import org.jcodings.constants.CharacterType;
 import org.jcodings.constants.PosixBracket;
 import org.jcodings.exception.CharacterPropertyException;
 import org.jcodings.exception.EncodingError;
@@ -45,6 +46,49 @@ abstract class AbstractEncoding extends Encoding {
         return (CTypeTable[code] & CTypeToBit(ctype)) != 0;
     }
 
+    /**
+     * ASCII bytes of ASCII compatible encodings are classified straight from the ctype table
+     */
+    @Override
+    public int spanCType(byte[]bytes, int p, int end, int ctype) {
+        if (!isAsciiCompatible() || ctype > CharacterType.MAX_STD_CTYPE) return super.spanCType(bytes, p, end, ctype);
+        final int bit = CTypeToBit(ctype);
+        while (p < end) {
+            int c = bytes[p] & 0xff;
+            if (c < 0x80) {
+                if ((CTypeTable[c] & bit) == 0) return p;
+                p++;
+            } else {
+                int length = length(bytes, p, end);
+                if (length <= 0 || p + length > end || !isCodeCType(mbcToCode(bytes, p, p + length), ctype)) return p;
+                p += length;
+            }
+        }
+        return p;
+    }
+
+    @Override
+    public int findCType(byte[]bytes, int p, int end, int ctype) {
+        if (!isAsciiCompatible() || ctype > CharacterType.MAX_STD_CTYPE) return super.findCType(bytes, p, end, ctype);
+        final int bit = CTypeToBit(ctype);
+        while (p < end) {
+            int c = bytes[p] & 0xff;
+            if (c < 0x80) {
+                if ((CTypeTable[c] & bit) != 0) return p;
+                p++;
+            } else {
+                int length = length(bytes, p, end);
+                if (length <= 0 || p + length > end) {
+                    p++;
+                } else {
+                    if (isCodeCType(mbcToCode(bytes, p, p + length), ctype)) return p;
+                    p += length;
+                }
+            }
+        }
+        return end;
+    }
+
     /** onigenc_is_mbc_newline_0x0a / used also by multibyte encodings
      *
      */
@@ -86,22 +130,35 @@ abstract class AbstractEncoding extends Encoding {
     }
 
     protected final CaseFoldCodeItem[]asciiCaseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
+        CaseFoldCodeBuffer buffer = CaseFoldCodeBuffer.scratch();
+        asciiCaseFoldCodesByString(flag, bytes, p, end, buffer);
+        return buffer.toItems();
+    }
+
+    protected final int asciiCaseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        buffer.clear();
         int b = bytes[p] & 0xff;
 
         if (0x41 <= b && b <= 0x5a) {
-            return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b + 0x20)};
+            buffer.add(1, b + 0x20);
         } else if (0x61 <= b && b <= 0x7a) {
-            return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b - 0x20)};
-        } else {
-            return CaseFoldCodeItem.EMPTY_FOLD_CODES;
+            buffer.add(1, b - 0x20);
         }
+        return buffer.size();
     }
 
     /** onigenc_ascii_get_case_fold_codes_by_str / used also by multibyte encodings
      */
     @Override
     public CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
-        return asciiCaseFoldCodesByString(flag, bytes, p, end);
+        CaseFoldCodeBuffer buffer = CaseFoldCodeBuffer.scratch();
+        caseFoldCodesByString(flag, bytes, p, end, buffer);
+        return buffer.toItems();
+    }
+
+    @Override
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        return asciiCaseFoldCodesByString(flag, bytes, p, end, buffer);
     }
 
     /** onigenc_ascii_only_case_map / onigenc_single_byte_ascii_only_case_map
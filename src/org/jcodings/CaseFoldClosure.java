@@ -0,0 +1,117 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings;
+
+/**
+ * Immutable, flattened result of {@link Encoding#applyAllCaseFold(int, ApplyAllCaseFoldFunction, Object)}:
+ * entry <code>i</code> states that <code>from(i)</code> case folds to the <code>length(i)</code> code points
+ * <code>to(i, 0)</code> .. <code>to(i, length(i) - 1)</code>, in callback order.
+ */
+public final class CaseFoldClosure {
+    private static final int STRIDE = Config.ENC_MAX_COMP_CASE_FOLD_CODE_LEN;
+
+    private final int size;
+    private final int[] from;
+    private final byte[] lengths;
+    private final int[] to;
+
+    private CaseFoldClosure(int size, int[] from, byte[] lengths, int[] to) {
+        this.size = size;
+        this.from = from;
+        this.lengths = lengths;
+        this.to = to;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int from(int entry) {
+        return from[entry];
+    }
+
+    public int length(int entry) {
+        return lengths[entry];
+    }
+
+    public int to(int entry, int index) {
+        return to[entry * STRIDE + index];
+    }
+
+    /**
+     * Replays the closure through the callback API
+     */
+    public void apply(ApplyAllCaseFoldFunction fun, Object arg) {
+        int[][]scratch = new int[][]{null, new int[1], new int[2], new int[3]};
+        for (int i = 0; i < size; i++) {
+            int length = lengths[i];
+            int[]codes = scratch[length];
+            System.arraycopy(to, i * STRIDE, codes, 0, length);
+            fun.apply(from[i], codes, length, arg);
+        }
+    }
+
+    /**
+     * Collects the closure of an encoding by running its callback based implementation
+     */
+    public static CaseFoldClosure collect(Encoding enc, int flag) {
+        Builder builder = new Builder();
+        enc.applyAllCaseFold(flag, builder, null);
+        return builder.build();
+    }
+
+    /**
+     * Accumulates callback invocations into a closure
+     */
+    public static final class Builder implements ApplyAllCaseFoldFunction {
+        private int size;
+        private int[] from = new int[256];
+        private byte[] lengths = new byte[256];
+        private int[] to = new int[256 * STRIDE];
+
+        public void apply(int c, int[] codes, int length, Object arg) {
+            if (size == from.length) {
+                from = grow(from, size << 1);
+                lengths = grow(lengths, size << 1);
+                to = grow(to, (size << 1) * STRIDE);
+            }
+            from[size] = c;
+            lengths[size] = (byte)length;
+            System.arraycopy(codes, 0, to, size * STRIDE, length);
+            size++;
+        }
+
+        public CaseFoldClosure build() {
+            return new CaseFoldClosure(size, grow(from, size), grow(lengths, size), grow(to, size * STRIDE));
+        }
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] tmp = new int[length];
+        System.arraycopy(array, 0, tmp, 0, Math.min(array.length, length));
+        return tmp;
+    }
+
+    private static byte[] grow(byte[] array, int length) {
+        byte[] tmp = new byte[length];
+        System.arraycopy(array, 0, tmp, 0, Math.min(array.length, length));
+        return tmp;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings;
+
+/**
+ * Reusable, struct of arrays result holder for {@link Encoding#caseFoldCodesByString(int, byte[], int, int, CaseFoldCodeBuffer)}.
+ * Item <code>i</code> matches <code>byteLength(i)</code> bytes of the input and folds to <code>codeLength(i)</code> code points.
+ */
+public final class CaseFoldCodeBuffer {
+    private static final int STRIDE = Config.ENC_MAX_COMP_CASE_FOLD_CODE_LEN;
+
+    private final int[] byteLengths = new int[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM];
+    private final int[] codeLengths = new int[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM];
+    private final int[] codes = new int[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM * STRIDE];
+    private int size;
+
+    private final int[][] alternatives = new int[STRIDE][4];
+    private final int[] alternativeCounts = new int[STRIDE];
+
+    // backs the CaseFoldCodeItem[] variants, which copy the items out before returning
+    private static final ThreadLocal<CaseFoldCodeBuffer> scratch = new ThreadLocal<CaseFoldCodeBuffer>() {
+        @Override
+        protected CaseFoldCodeBuffer initialValue() {
+            return new CaseFoldCodeBuffer();
+        }
+    };
+
+    static CaseFoldCodeBuffer scratch() {
+        return scratch.get();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int byteLength(int item) {
+        return byteLengths[item];
+    }
+
+    public int codeLength(int item) {
+        return codeLengths[item];
+    }
+
+    public int code(int item, int index) {
+        return codes[item * STRIDE + index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Scratch space for implementations composing multi character folds: the codes a component of the fold can be
+     * written as, the number of which goes to {@link #alternativeCounts()}
+     */
+    public int[] alternatives(int component) {
+        return alternatives[component];
+    }
+
+    public int[] alternativeCounts() {
+        return alternativeCounts;
+    }
+
+    public void add(int byteLen, int code1) {
+        int i = size++;
+        byteLengths[i] = byteLen;
+        codeLengths[i] = 1;
+        codes[i * STRIDE] = code1;
+    }
+
+    public void add(int byteLen, int code1, int code2) {
+        int i = size++;
+        byteLengths[i] = byteLen;
+        codeLengths[i] = 2;
+        codes[i * STRIDE] = code1;
+        codes[i * STRIDE + 1] = code2;
+    }
+
+    public void add(int byteLen, int code1, int code2, int code3) {
+        int i = size++;
+        byteLengths[i] = byteLen;
+        codeLengths[i] = 3;
+        codes[i * STRIDE] = code1;
+        codes[i * STRIDE + 1] = code2;
+        codes[i * STRIDE + 2] = code3;
+    }
+
+    public void add(CaseFoldCodeItem item) {
+        int i = size++;
+        byteLengths[i] = item.byteLen;
+        codeLengths[i] = item.code.length;
+        System.arraycopy(item.code, 0, codes, i * STRIDE, item.code.length);
+    }
+
+    public CaseFoldCodeItem item(int item) {
+        switch (codeLengths[item]) {
+        case 1: return CaseFoldCodeItem.create(byteLengths[item], code(item, 0));
+        case 2: return CaseFoldCodeItem.create(byteLengths[item], code(item, 0), code(item, 1));
+        default: return CaseFoldCodeItem.create(byteLengths[item], code(item, 0), code(item, 1), code(item, 2));
+        }
+    }
+
+    public CaseFoldCodeItem[] toItems() {
+        if (size == 0) return CaseFoldCodeItem.EMPTY_FOLD_CODES;
+        CaseFoldCodeItem[] items = new CaseFoldCodeItem[size];
+        for (int i = 0; i < size; i++) items[i] = item(i);
+        return items;
+    }
+}
@@ -67,56 +67,58 @@ public abstract class CaseFoldMapEncoding extends SingleByteEncoding {
     protected final CaseFoldCodeItem[]getCaseFoldCodesByStringWithMap(int mapSize, int[][]map,
                                                   boolean essTsettFlag, int flag,
                                                   byte[]bytes, int p, int end) {
+        CaseFoldCodeBuffer buffer = CaseFoldCodeBuffer.scratch();
+        getCaseFoldCodesByStringWithMap(mapSize, map, essTsettFlag, flag, bytes, p, end, buffer);
+        return buffer.toItems();
+    }
+
+    @Override
+    public void applyAllCaseFold(int flag, ApplyAllCaseFoldFunction fun, Object arg) {
+        applyAllCaseFoldWithMap(CaseFoldMap.length, CaseFoldMap, foldFlag, flag, fun, arg);
+    }
+
+    protected final int getCaseFoldCodesByStringWithMap(int mapSize, int[][]map,
+                                                  boolean essTsettFlag, int flag,
+                                                  byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        buffer.clear();
         int b = bytes[p] & 0xff;
 
         if (0x41 <= b && b <= 0x5a) {
-            CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, b + 0x20);
+            buffer.add(1, b + 0x20);
 
             if (b == 0x53 && essTsettFlag && end > p + 1 &&
                (bytes[p+1] == (byte)0x53 || bytes[p+1] == (byte)0x73)) { /* SS */
-                CaseFoldCodeItem item1 = CaseFoldCodeItem.create(2, 0xdf);
-                return new CaseFoldCodeItem[]{item0, item1};
-            } else {
-                return new CaseFoldCodeItem[]{item0};
+                buffer.add(2, 0xdf);
             }
         } else if (0x61 <= b && b <= 0x7a) {
-            CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, b - 0x20);
+            buffer.add(1, b - 0x20);
 
             if (b == 0x73 && essTsettFlag && end >p + 1 &&
                (bytes[p+1] == (byte)0x73 || bytes[p+1] == (byte)0x53)) { /* ss */
-                CaseFoldCodeItem item1 = CaseFoldCodeItem.create(2, 0xdf);
-
-                return new CaseFoldCodeItem[]{item0, item1};
-            } else {
-                return new CaseFoldCodeItem[]{item0};
+                buffer.add(2, 0xdf);
             }
         } else if (b == 0xdf && essTsettFlag) {
-            CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, 's', 's');
-            CaseFoldCodeItem item1 = CaseFoldCodeItem.create(1, 'S', 'S');
-            CaseFoldCodeItem item2 = CaseFoldCodeItem.create(1, 's', 'S');
-            CaseFoldCodeItem item3 = CaseFoldCodeItem.create(1, 'S', 's');
-
-            return new CaseFoldCodeItem[]{item0, item1, item2, item3};
+            buffer.add(1, 's', 's');
+            buffer.add(1, 'S', 'S');
+            buffer.add(1, 's', 'S');
+            buffer.add(1, 'S', 's');
         } else {
             for (int i=0; i<mapSize; i++) {
                 if (b == map[i][0]) {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, map[i][1])};
+                    buffer.add(1, map[i][1]);
+                    break;
                 } else if (b == map[i][1]) {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, map[i][0])};
+                    buffer.add(1, map[i][0]);
+                    break;
                 }
             }
         }
-        return CaseFoldCodeItem.EMPTY_FOLD_CODES;
-    }
-
-    @Override
-    public void applyAllCaseFold(int flag, ApplyAllCaseFoldFunction fun, Object arg) {
-        applyAllCaseFoldWithMap(CaseFoldMap.length, CaseFoldMap, foldFlag, flag, fun, arg);
+        return buffer.size();
     }
 
     @Override
-    public CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
-        return getCaseFoldCodesByStringWithMap(CaseFoldMap.length, CaseFoldMap, foldFlag, flag, bytes, p, end);
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        return getCaseFoldCodesByStringWithMap(CaseFoldMap.length, CaseFoldMap, foldFlag, flag, bytes, p, end, buffer);
     }
 
     @Override
@@ -0,0 +1,305 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable set of code points in the code range layout consumed by {@link CodeRange#isInCodeRange}:
+ * <code>[n, from1, to1, ..., fromN, toN]</code>, kept canonical (sorted, disjoint, non adjacent ranges) so that
+ * set operations are single linear merges.
+ *
+ * Sets created from the same table instance are the same set, and results of the set operations are cached per
+ * process keyed by the operation and the identity of its operands, so a character class built from
+ * {@link Encoding#ctypeCodeRange(int, IntHolder)} tables (e.g. <code>[\p{L}&amp;&amp;[^\p{Lu}]]</code>) is only
+ * computed once. Cache entries are dropped once either operand is garbage collected.
+ */
+public final class CodeRangeSet {
+    public static final int LAST_CODE_POINT = 0x7fffffff;
+    public static final CodeRangeSet EMPTY = new CodeRangeSet(new int[] {0});
+    public static final CodeRangeSet ALL = new CodeRangeSet(new int[] {1, 0, LAST_CODE_POINT});
+
+    // one set per source table, tables are compared by identity
+    private static final WeakHashMap<int[], CodeRangeSet> tables = new WeakHashMap<int[], CodeRangeSet>();
+    private static final ConcurrentHashMap<Operation, CodeRangeSet> cache = new ConcurrentHashMap<Operation, CodeRangeSet>();
+    private static final ReferenceQueue<CodeRangeSet> collected = new ReferenceQueue<CodeRangeSet>();
+
+    private final int[]ranges;
+    private final int hash;
+
+    private CodeRangeSet(int[]ranges) {
+        this.ranges = ranges;
+        this.hash = Arrays.hashCode(ranges);
+    }
+
+    /**
+     * Returns the set of a code range table (e.g. from {@link Encoding#ctypeCodeRange(int, IntHolder)}),
+     * sorting and merging ranges as needed. The table itself is not retained but must not be modified afterwards,
+     * the same table instance always yields the same set.
+     */
+    public static CodeRangeSet of(int[]ranges) {
+        synchronized (tables) {
+            CodeRangeSet set = tables.get(ranges);
+            if (set == null) tables.put(ranges, set = create(ranges));
+            return set;
+        }
+    }
+
+    private static CodeRangeSet create(int[]ranges) {
+        int n = ranges[0];
+        boolean canonical = true;
+        for (int i = 0; i < n && canonical; i++) {
+            int from = ranges[2 * i + 1], to = ranges[2 * i + 2];
+            canonical = from >= 0 && from <= to && (i == 0 || from > ranges[2 * i] + 1L);
+        }
+        if (canonical) return n == 0 ? EMPTY : new CodeRangeSet(Arrays.copyOf(ranges, 2 * n + 1));
+
+        long[]pairs = new long[n];
+        for (int i = 0; i < n; i++) pairs[i] = ((long)ranges[2 * i + 1] << 32) | (ranges[2 * i + 2] & 0xffffffffL);
+        Arrays.sort(pairs);
+        Builder builder = new Builder(n);
+        for (long pair : pairs) builder.add((int)(pair >>> 32), (int)pair);
+        return builder.build();
+    }
+
+    public static CodeRangeSet range(int from, int to) {
+        return new CodeRangeSet(new int[] {1, from, to});
+    }
+
+    public int size() {
+        return ranges[0];
+    }
+
+    public int from(int index) {
+        return ranges[2 * index + 1];
+    }
+
+    public int to(int index) {
+        return ranges[2 * index + 2];
+    }
+
+    public boolean isEmpty() {
+        return ranges[0] == 0;
+    }
+
+    public boolean contains(int code) {
+        return CodeRange.isInCodeRange(ranges, code);
+    }
+
+    /**
+     * Returns a copy in the <code>[n, from1, to1, ...]</code> layout
+     */
+    public int[] toArray() {
+        return ranges.clone();
+    }
+
+    public CodeRangeSet union(CodeRangeSet other) {
+        return apply(Operation.UNION, this, other);
+    }
+
+    public CodeRangeSet intersect(CodeRangeSet other) {
+        return apply(Operation.INTERSECT, this, other);
+    }
+
+    public CodeRangeSet subtract(CodeRangeSet other) {
+        return apply(Operation.SUBTRACT, this, other);
+    }
+
+    public CodeRangeSet complement() {
+        return apply(Operation.COMPLEMENT, this, ALL);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) return true;
+        if (!(other instanceof CodeRangeSet)) return false;
+        CodeRangeSet o = (CodeRangeSet)other;
+        return o.hash == hash && Arrays.equals(o.ranges, ranges);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) buf.append(", ");
+            buf.append(Integer.toHexString(from(i))).append('-').append(Integer.toHexString(to(i)));
+        }
+        return buf.append(']').toString();
+    }
+
+    private static CodeRangeSet apply(int op, CodeRangeSet a, CodeRangeSet b) {
+        expungeCollected();
+        CodeRangeSet result = cache.get(new Lookup(op, a, b));
+        if (result == null) {
+            switch (op) {
+            case Operation.UNION:       result = merge(a, false, b, false, false); break;
+            case Operation.INTERSECT:   result = merge(a, false, b, false, true); break;
+            case Operation.SUBTRACT:    result = merge(a, false, b, true, true); break;
+            default:                    result = merge(a, true, b, false, true); break;
+            }
+            CodeRangeSet previous = cache.putIfAbsent(new Entry(op, a, b), result);
+            if (previous != null) result = previous;
+        }
+        return result;
+    }
+
+    private static void expungeCollected() {
+        Reference<? extends CodeRangeSet> ref;
+        while ((ref = collected.poll()) != null) cache.remove(((Operand)ref).entry);
+    }
+
+    /**
+     * Sweeps the boundaries of both (optionally complemented) operands in order, emitting the ranges covered
+     * by both (<code>and</code>) or by either of them
+     */
+    private static CodeRangeSet merge(CodeRangeSet a, boolean notA, CodeRangeSet b, boolean notB, boolean and) {
+        Builder builder = new Builder(a.size() + b.size() + 1);
+        int i = 0, j = 0;
+        long code = 0;
+        while (code <= LAST_CODE_POINT) {
+            while (i < a.size() && a.to(i) < code) i++;
+            while (j < b.size() && b.to(j) < code) j++;
+            boolean inA = i < a.size() && a.from(i) <= code;
+            boolean inB = j < b.size() && b.from(j) <= code;
+            /* the membership of both operands stays constant up to this point */
+            long next = Math.min(inA ? a.to(i) + 1L : i < a.size() ? a.from(i) : LAST_CODE_POINT + 1L,
+                                 inB ? b.to(j) + 1L : j < b.size() ? b.from(j) : LAST_CODE_POINT + 1L);
+            boolean in = and ? (inA ^ notA) && (inB ^ notB) : (inA ^ notA) || (inB ^ notB);
+            if (in) builder.add((int)code, (int)(next - 1));
+            code = next;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Cache key, operands are compared by identity
+     */
+    private static abstract class Operation {
+        static final int UNION = 0, INTERSECT = 1, SUBTRACT = 2, COMPLEMENT = 3;
+
+        final int op, hash;
+
+        Operation(int op, CodeRangeSet a, CodeRangeSet b) {
+            this.op = op;
+            this.hash = (op * 31 + System.identityHashCode(a)) * 31 + System.identityHashCode(b);
+        }
+
+        abstract CodeRangeSet a();
+        abstract CodeRangeSet b();
+
+        @Override
+        public final int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public final boolean equals(Object other) {
+            if (other == this) return true;
+            if (!(other instanceof Operation)) return false;
+            Operation o = (Operation)other;
+            CodeRangeSet a = a();
+            return o.op == op && o.hash == hash && a != null && o.a() == a && o.b() == b();
+        }
+    }
+
+    // probes the cache without allocating weak references
+    private static final class Lookup extends Operation {
+        private final CodeRangeSet a, b;
+
+        Lookup(int op, CodeRangeSet a, CodeRangeSet b) {
+            super(op, a, b);
+            this.a = a;
+            this.b = b;
+        }
+
+        CodeRangeSet a() {
+            return a;
+        }
+
+        CodeRangeSet b() {
+            return b;
+        }
+    }
+
+    // holds the operands weakly, an entry is removed once either of them is collected
+    private static final class Entry extends Operation {
+        private final Operand a, b;
+
+        Entry(int op, CodeRangeSet a, CodeRangeSet b) {
+            super(op, a, b);
+            this.a = new Operand(a, this);
+            this.b = new Operand(b, this);
+        }
+
+        CodeRangeSet a() {
+            return a.get();
+        }
+
+        CodeRangeSet b() {
+            return b.get();
+        }
+    }
+
+    private static final class Operand extends WeakReference<CodeRangeSet> {
+        final Entry entry;
+
+        Operand(CodeRangeSet set, Entry entry) {
+            super(set, collected);
+            this.entry = entry;
+        }
+    }
+
+    // appends ranges in ascending order, merging overlapping and adjacent ones
+    private static final class Builder {
+        private int[]ranges;
+        private int n;
+
+        Builder(int capacity) {
+            ranges = new int[2 * Math.max(capacity, 1) + 1];
+        }
+
+        void add(int from, int to) {
+            if (n > 0 && from <= ranges[2 * n] + 1L) {
+                if (to > ranges[2 * n]) ranges[2 * n] = to;
+                return;
+            }
+            if (2 * n + 3 > ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2 + 1);
+            ranges[2 * n + 1] = from;
+            ranges[2 * n + 2] = to;
+            n++;
+        }
+
+        CodeRangeSet build() {
+            if (n == 0) return EMPTY;
+            ranges[0] = n;
+            return new CodeRangeSet(ranges.length == 2 * n + 1 ? ranges : Arrays.copyOf(ranges, 2 * n + 1));
+        }
+    }
+}
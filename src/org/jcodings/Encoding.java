@@ -28,7 +28,13 @@ import org.jcodings.exception.EncodingError;
 import org.jcodings.exception.ErrorMessages;
 import org.jcodings.exception.InternalException;
 import org.jcodings.util.BytesHash;
+import org.jcodings.util.IntMap;
 
+/**
+ * Base of all encodings. {@link #length}, {@link #mbcToCode}, {@link #caseMap}, {@link #mbcCaseFold} and {@link #isCodeCType}
+ * do not allocate on valid input once the tables they use are loaded, implementations are expected to keep it that way
+ * (checked by <code>TestAllocation</code>).
+ */
 public abstract class Encoding implements Cloneable {
     public static final int CHAR_INVALID = -1;
     private static int count;
@@ -44,6 +50,7 @@ public abstract class Encoding implements Cloneable {
     private Charset charset = null;
     private boolean isDummy = false;
     private String stringName;
+    private IntMap<CaseFoldClosure> caseFoldClosures; // guarded by this
 
     protected Encoding(String name, int minLength, int maxLength) {
         setName(name);
@@ -57,6 +64,13 @@ public abstract class Encoding implements Cloneable {
         this.isAsciiCompatible = minLength == 1;
     }
 
+    /**
+     * Number of encoding instances created so far, replicas included
+     */
+    public static int getInstanceCount() {
+        return count;
+    }
+
     protected final void setName(String name) {
         this.name = name.getBytes();
         this.hashCode = BytesHash.hashCode(this.name, 0, this.name.length);
@@ -146,6 +160,7 @@ public abstract class Encoding implements Cloneable {
             Encoding clone = (Encoding)clone();
             clone.setName(name);
             clone.index = count++;
+            clone.caseFoldClosures = null;
             return clone;
         } catch (CloneNotSupportedException cnse){
             throw new EncodingException(EncodingError.ERR_COULD_NOT_REPLICATE, new String(name));
@@ -245,6 +260,86 @@ public abstract class Encoding implements Cloneable {
      */
     public abstract int mbcCaseFold(int flag, byte[]bytes, IntHolder pp, int end, byte[]to);
 
+    /**
+     * Compares two byte ranges as if both had been case folded with {@link #mbcCaseFold} first,
+     * so multi character folds match their expansion (e.g. sharp s and "ss").
+     *
+     * @return  zero if the folded forms are equal, otherwise a negative or positive value giving a consistent order
+     */
+    public int caseFoldCompare(int flag, byte[]a, int ap, int aend, byte[]b, int bp, int bend) {
+        final boolean ascii = isAsciiCompatible() && (flag & Config.CASE_FOLD_TURKISH_AZERI) == 0;
+        byte[]aFold = null, bFold = null;
+        IntHolder pp = null;
+        int aIdx = 0, aLen = 0, bIdx = 0, bLen = 0;
+
+        while (true) {
+            int ca, cb;
+            if (aIdx < aLen) {
+                ca = aFold[aIdx++] & 0xff;
+            } else if (ap >= aend) {
+                ca = -1;
+            } else if ((ascii && a[ap] >= 0) || length(a, ap, aend) < 0) {
+                ca = ascii && a[ap] >= 0 ? AsciiTables.ToLowerCaseTable[a[ap]] & 0xff : a[ap] & 0xff;
+                ap++;
+            } else {
+                if (pp == null) pp = new IntHolder();
+                if (aFold == null) aFold = new byte[Config.ENC_MBC_CASE_FOLD_MAXLEN];
+                pp.value = ap;
+                aLen = mbcCaseFold(flag, a, pp, aend, aFold);
+                ap = pp.value;
+                aIdx = 1;
+                ca = aFold[0] & 0xff;
+            }
+
+            if (bIdx < bLen) {
+                cb = bFold[bIdx++] & 0xff;
+            } else if (bp >= bend) {
+                cb = -1;
+            } else if ((ascii && b[bp] >= 0) || length(b, bp, bend) < 0) {
+                cb = ascii && b[bp] >= 0 ? AsciiTables.ToLowerCaseTable[b[bp]] & 0xff : b[bp] & 0xff;
+                bp++;
+            } else {
+                if (pp == null) pp = new IntHolder();
+                if (bFold == null) bFold = new byte[Config.ENC_MBC_CASE_FOLD_MAXLEN];
+                pp.value = bp;
+                bLen = mbcCaseFold(flag, b, pp, bend, bFold);
+                bp = pp.value;
+                bIdx = 1;
+                cb = bFold[0] & 0xff;
+            }
+
+            if (ca != cb) return ca < cb ? -1 : 1;
+            if (ca == -1) return 0;
+        }
+    }
+
+    /**
+     * Hashes a byte range consistently with {@link #caseFoldCompare}: ranges comparing equal have equal hashes
+     */
+    public int caseFoldHash(int flag, byte[]bytes, int p, int end) {
+        final boolean ascii = isAsciiCompatible() && (flag & Config.CASE_FOLD_TURKISH_AZERI) == 0;
+        byte[]fold = null;
+        IntHolder pp = null;
+        int hash = 0;
+
+        while (p < end) {
+            if ((ascii && bytes[p] >= 0) || length(bytes, p, end) < 0) {
+                hash = hash * 31 + (ascii && bytes[p] >= 0 ? AsciiTables.ToLowerCaseTable[bytes[p]] & 0xff : bytes[p] & 0xff);
+                p++;
+            } else {
+                if (pp == null) {
+                    pp = new IntHolder();
+                    fold = new byte[Config.ENC_MBC_CASE_FOLD_MAXLEN];
+                }
+                pp.value = p;
+                int length = mbcCaseFold(flag, bytes, pp, end, fold);
+                p = pp.value;
+                for (int i = 0; i < length; i++) hash = hash * 31 + (fold[i] & 0xff);
+            }
+        }
+        return hash;
+    }
+
     /**
      * Returns lower case table if it's safe to use it directly, otherwise <code>null</code>
      * Used for fast case insensitive matching for some singlebyte encodings
@@ -264,6 +359,18 @@ public abstract class Encoding implements Cloneable {
      */
     public abstract void applyAllCaseFold(int flag, ApplyAllCaseFoldFunction fun, Object arg);
 
+    /**
+     * Bulk form of {@link #applyAllCaseFold(int, ApplyAllCaseFoldFunction, Object)}, built on first use per flag and cached
+     */
+    public CaseFoldClosure caseFoldClosure(int flag) {
+        synchronized (this) {
+            if (caseFoldClosures == null) caseFoldClosures = new IntMap<CaseFoldClosure>(4);
+            CaseFoldClosure closure = caseFoldClosures.get(flag);
+            if (closure == null) caseFoldClosures.put(flag, closure = CaseFoldClosure.collect(this, flag));
+            return closure;
+        }
+    }
+
     /**
      * Expand AST string nodes into their folded alternatives (look at: <code>Analyser.expandCaseFoldString</code>)
      *
@@ -271,6 +378,18 @@ public abstract class Encoding implements Cloneable {
      */
     public abstract CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end);
 
+    /**
+     * Same as {@link #caseFoldCodesByString(int, byte[], int, int)} but fills a reusable buffer instead of allocating items
+     *
+     * @return number of items written to the (cleared) buffer
+     */
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        buffer.clear();
+        CaseFoldCodeItem[]items = caseFoldCodesByString(flag, bytes, p, end);
+        for (int i = 0; i < items.length; i++) buffer.add(items[i]);
+        return buffer.size();
+    }
+
     /**
      * Returns character type given character type name (used when e.g. \p{Alpha})
      *
@@ -288,6 +407,36 @@ public abstract class Encoding implements Cloneable {
      */
     public abstract boolean isCodeCType(int code, int ctype);
 
+    /**
+     * Returns the end of the longest prefix of <code>bytes[p..end)</code> made only of characters of the given
+     * character type, stopping at the first invalid character.
+     */
+    public int spanCType(byte[]bytes, int p, int end, int ctype) {
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length <= 0 || p + length > end || !isCodeCType(mbcToCode(bytes, p, p + length), ctype)) return p;
+            p += length;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the start of the first character of the given character type at or after <code>p</code>, or <code>end</code>
+     * if there is none; invalid bytes are skipped <code>minLength()</code> at a time.
+     */
+    public int findCType(byte[]bytes, int p, int end, int ctype) {
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length <= 0 || p + length > end) {
+                p += minLength();
+                continue;
+            }
+            if (isCodeCType(mbcToCode(bytes, p, p + length), ctype)) return p;
+            p += length;
+        }
+        return end;
+    }
+
     /**
      * Returns code range for a given character type
      *
@@ -320,6 +469,57 @@ public abstract class Encoding implements Cloneable {
      */
     public abstract int caseMap(IntHolder flagP, byte[]bytes, IntHolder pp, int end, byte[]to, int toP, int toEnd);
 
+    /**
+     * Returns the end of the longest prefix of <code>bytes[p..end)</code> that {@link #caseMap} would
+     * leave untouched, so <code>end</code> tells that mapping the whole string would not set <code>CASE_MODIFIED</code>
+     * and the caller can keep the original bytes without writing anything.
+     */
+    public int caseMapSpan(int flags, byte[]bytes, int p, int end) {
+        IntHolder flagP = new IntHolder();
+        IntHolder pp = new IntHolder();
+        byte[]to = new byte[CASE_MAP_SPAN_BUFFER];
+        flagP.value = flags & ~Config.CASE_MODIFIED;
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length < 0) return p;
+            pp.value = p;
+            caseMap(flagP, bytes, pp, p + length, to, 0, to.length);
+            if ((flagP.value & Config.CASE_MODIFIED) != 0) return p;
+            p += length;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the exact number of bytes {@link #caseMap} produces for <code>bytes[p..end)</code> given enough room,
+     * so that the destination can be allocated once, or a negative error code for invalid input.
+     */
+    public int caseMapLength(int flags, byte[]bytes, int p, int end) {
+        return caseMapLengthByMapping(flags, bytes, p, end);
+    }
+
+    /**
+     * Measures by mapping into a small scratch buffer chunk by chunk, honoring the room each caseMap implementation reserves.
+     */
+    protected final int caseMapLengthByMapping(int flags, byte[]bytes, int p, int end) {
+        IntHolder flagP = new IntHolder();
+        IntHolder pp = new IntHolder();
+        byte[]to = new byte[Math.min(end - p, CASE_MAP_LENGTH_CHUNK) + CASE_MAP_SPAN_BUFFER];
+        flagP.value = flags;
+        pp.value = p;
+        int length = 0;
+        while (pp.value < end) {
+            int n = caseMap(flagP, bytes, pp, end, to, 0, to.length - CASE_MAP_LENGTH_SLACK);
+            if (n < 0) return n;
+            length += n;
+        }
+        return length;
+    }
+
+    private static final int CASE_MAP_SPAN_BUFFER = 32;
+    private static final int CASE_MAP_LENGTH_CHUNK = 1024;
+    private static final int CASE_MAP_LENGTH_SLACK = 16;
+
     /* onigenc_get_right_adjust_char_head / ONIGENC_LEFT_ADJUST_CHAR_HEAD */
     public final int rightAdjustCharHead(byte[]bytes, int p, int s, int end) {
         int p_ = leftAdjustCharHead(bytes, p, s, end);
@@ -71,7 +71,7 @@ public final class EncodingDB {
             return base;
         }
 
-        public Encoding getEncoding() {
+        public synchronized Encoding getEncoding() {
             if (encoding == null) {
                 if (name == null) {
                     encoding = EncodingList.getInstance(encodingClass);
@@ -129,6 +129,20 @@ public abstract class MultiByteEncoding extends AbstractEncoding {
         return asciiOnlyCaseMap(flagP, bytes, pp, end, to, toP, toEnd);
     }
 
+    /**
+     * ASCII only mapping never changes the byte length of a character
+     */
+    @Override
+    public int caseMapLength(int flags, byte[]bytes, int p, int end) {
+        int start = p;
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length < 0) return length;
+            p += length;
+        }
+        return p - start;
+    }
+
     protected final int mbnMbcCaseFold(int flag, byte[]bytes, IntHolder pp, int end, byte[]lower) {
         int p = pp.value;
         int lowerP = 0;
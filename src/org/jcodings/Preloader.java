@@ -0,0 +1,185 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.jcodings.exception.ErrorMessages;
+import org.jcodings.exception.InternalException;
+import org.jcodings.exception.TranscoderException;
+import org.jcodings.specific.UTF8Encoding;
+import org.jcodings.transcode.TranscoderDB;
+import org.jcodings.unicode.UnicodeEncoding;
+
+/**
+ * Loads encodings, transcoders and Unicode tables ahead of their first use.
+ *
+ * Every registered item is loaded as a separate task on the supplied executor so that
+ * services can warm up before taking traffic. Failures do not abort the remaining tasks,
+ * they are reported through {@link Result#getError()} instead.
+ */
+public final class Preloader {
+    public static final class Result {
+        private final String name;
+        private final long nanos;
+        private final Throwable error;
+
+        Result(String name, long nanos, Throwable error) {
+            this.name = name;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Wall clock time spent loading this item
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the failure raised while loading this item or <code>null</code>
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + (error == null ? (nanos / 1000) + "us" : error.toString());
+        }
+    }
+
+    private final List<String> names = new ArrayList<String>();
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    private Preloader add(String name, Runnable task) {
+        names.add(name);
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * Materializes an encoding (or alias) registered in {@link EncodingDB}
+     */
+    public Preloader addEncoding(final String name) {
+        return add("encoding " + name, new Runnable() {
+            public void run() {
+                byte[]bytes = name.getBytes();
+                EncodingDB.Entry entry = EncodingDB.getEncodings().get(bytes);
+                if (entry == null) entry = EncodingDB.getAliases().get(bytes);
+                if (entry == null) throw new InternalException(ErrorMessages.ERR_NO_SUCH_ENCODNG, name);
+                entry.getEncoding();
+            }
+        });
+    }
+
+    /**
+     * Loads every transcoder (and its tables) on the conversion path from source to destination
+     */
+    public Preloader addTranscoder(final String source, final String destination) {
+        return add("transcoder " + source + " => " + destination, new Runnable() {
+            public void run() {
+                int length = TranscoderDB.searchPath(source.getBytes(), destination.getBytes(), new TranscoderDB.SearchPathCallback() {
+                    public void call(byte[] source, byte[] destination, int depth) {
+                        TranscoderDB.getEntry(source, destination).getTranscoder();
+                    }
+                });
+                if (length < 0) throw new TranscoderException(ErrorMessages.ERR_NO_SUCH_TRANSCODER, source + " to " + destination);
+            }
+        });
+    }
+
+    /**
+     * Loads the code range table of a Unicode property (e.g. <code>Hiragana</code>, <code>Grapheme_Cluster_Break=Extend</code>)
+     */
+    public Preloader addUnicodeProperty(final String name) {
+        return add("unicode property " + name, new Runnable() {
+            public void run() {
+                byte[]bytes = name.getBytes();
+                int ctype = UTF8Encoding.INSTANCE.propertyNameToCType(bytes, 0, bytes.length);
+                UTF8Encoding.INSTANCE.ctypeCodeRange(ctype, new IntHolder());
+            }
+        });
+    }
+
+    /**
+     * Loads Unicode case folding/mapping tables, all of them if none are given
+     */
+    public Preloader addUnicodeCaseTables(UnicodeEncoding.CaseTable...tables) {
+        if (tables.length == 0) tables = UnicodeEncoding.CaseTable.values();
+        for (final UnicodeEncoding.CaseTable table : tables) {
+            add("unicode case table " + table, new Runnable() {
+                public void run() {
+                    table.load();
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Runs all registered tasks on the executor and waits for them to finish.
+     *
+     * @return per item load times in registration order
+     */
+    public List<Result> preload(Executor executor) {
+        final int size = tasks.size();
+        final Result[]results = new Result[size];
+        final CountDownLatch latch = new CountDownLatch(size);
+
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            final String name = names.get(i);
+            final Runnable task = tasks.get(i);
+            executor.execute(new Runnable() {
+                public void run() {
+                    long start = System.nanoTime();
+                    Throwable error = null;
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        error = t;
+                    }
+                    results[index] = new Result(name, System.nanoTime() - start, error);
+                    latch.countDown();
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InternalException("interrupted while preloading tables");
+        }
+
+        List<Result> list = new ArrayList<Result>(size);
+        for (int i = 0; i < size; i++) list.add(results[i]);
+        return list;
+    }
+}
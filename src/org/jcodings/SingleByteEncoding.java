@@ -19,6 +19,9 @@
  */
 package org.jcodings;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jcodings.constants.CharacterType;
 import org.jcodings.exception.ErrorCodes;
 
 public abstract class SingleByteEncoding extends AbstractEncoding {
@@ -54,11 +57,123 @@ public abstract class SingleByteEncoding extends AbstractEncoding {
     }
     // onigenc_is_mbc_newline_0x0a here
 
+    /**
+     * Translates through a lazily built per byte table for the given mapping flags, only the titlecased character and
+     * bytes expanding to more than one byte (e.g. sharp s) go through {@link #caseMapBytes}
+     */
     @Override
     public int caseMap(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
+        int toStart = toP;
+        if ((flagP.value & Config.CASE_TITLECASE) != 0 && pp.value < end) {
+            toP += caseMapBytes(flagP, bytes, pp, pp.value + 1, to, toP, toEnd);
+        }
+        int flags = flagP.value;
+        if ((flags & Config.CASE_TITLECASE) != 0) return toP - toStart + caseMapBytes(flagP, bytes, pp, end, to, toP, toEnd);
+        final short[]table = caseMapTable(flags);
+        int p = pp.value;
+
+        while (p < end && toP < toEnd) {
+            int entry = table[bytes[p] & 0xff];
+            if ((entry & CASE_MAP_EXPANDS) != 0) {
+                pp.value = p;
+                flagP.value = flags;
+                toP += caseMapBytes(flagP, bytes, pp, p + 1, to, toP, toEnd);
+                flags = flagP.value;
+                p = pp.value;
+            } else {
+                to[toP++] = (byte)entry;
+                if ((entry & CASE_MAP_MODIFIED) != 0) flags |= Config.CASE_MODIFIED;
+                p++;
+            }
+        }
+        pp.value = p;
+        flagP.value = flags;
+        return toP - toStart;
+    }
+
+    /**
+     * Per character case mapping, overridden by encodings with their own case rules
+     */
+    protected int caseMapBytes(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
         return singleByteAsciiOnlyCaseMap(flagP, bytes, pp, end, to, toP, toEnd);
     }
 
+    private static final int CASE_MAP_MODIFIED = 0x100;
+    private static final int CASE_MAP_EXPANDS = 0x200;
+    private final AtomicReferenceArray<short[]> caseMapTables = new AtomicReferenceArray<short[]>(16);
+
+    private short[] caseMapTable(int flags) {
+        int index = ((flags & (Config.CASE_UPCASE | Config.CASE_DOWNCASE)) >>> 13) | ((flags & (Config.CASE_FOLD | Config.CASE_FOLD_TURKISH_AZERI)) >>> 17);
+        short[]table = caseMapTables.get(index);
+        if (table == null) {
+            table = new short[MAX_BYTE + 1];
+            flags &= Config.CASE_UPCASE | Config.CASE_DOWNCASE | Config.CASE_FOLD | Config.CASE_FOLD_TURKISH_AZERI;
+            byte[]from = new byte[1];
+            byte[]to = new byte[4];
+            IntHolder flagP = new IntHolder();
+            IntHolder pp = new IntHolder();
+            for (int b = 0; b <= MAX_BYTE; b++) {
+                from[0] = (byte)b;
+                flagP.value = flags;
+                pp.value = 0;
+                if (caseMapBytes(flagP, from, pp, 1, to, 0, to.length) != 1) {
+                    table[b] = CASE_MAP_EXPANDS;
+                } else {
+                    table[b] = (short)((to[0] & 0xff) | ((flagP.value & Config.CASE_MODIFIED) != 0 ? CASE_MAP_MODIFIED : 0));
+                }
+            }
+            caseMapTables.compareAndSet(index, null, table);
+        }
+        return table;
+    }
+
+    /**
+     * Only upcasing or folding may expand a character (e.g. sharp s to "SS"), anything else maps byte for byte
+     */
+    @Override
+    public int caseMapLength(int flags, byte[]bytes, int p, int end) {
+        if ((flags & (Config.CASE_UPCASE | Config.CASE_FOLD)) == 0) return end - p;
+        return caseMapLengthByMapping(flags, bytes, p, end);
+    }
+
+    /**
+     * One lazily built 256 entry table holds the standard character types of every byte, so no per byte
+     * {@link #isCodeCType} call is made
+     */
+    @Override
+    public int spanCType(byte[]bytes, int p, int end, int ctype) {
+        if (ctype > CharacterType.MAX_STD_CTYPE) return super.spanCType(bytes, p, end, ctype);
+        final short[]table = ctypeTable();
+        final int bit = 1 << ctype;
+        while (p < end && (table[bytes[p] & 0xff] & bit) != 0) p++;
+        return p;
+    }
+
+    @Override
+    public int findCType(byte[]bytes, int p, int end, int ctype) {
+        if (ctype > CharacterType.MAX_STD_CTYPE) return super.findCType(bytes, p, end, ctype);
+        final short[]table = ctypeTable();
+        final int bit = 1 << ctype;
+        while (p < end && (table[bytes[p] & 0xff] & bit) == 0) p++;
+        return p;
+    }
+
+    private volatile short[] ctypeTable;
+
+    private short[] ctypeTable() {
+        short[]table = ctypeTable;
+        if (table == null) {
+            table = new short[MAX_BYTE + 1];
+            for (int b = 0; b <= MAX_BYTE; b++) {
+                for (int ctype = 0; ctype <= CharacterType.MAX_STD_CTYPE; ctype++) {
+                    if (isCodeCType(b, ctype)) table[b] |= 1 << ctype;
+                }
+            }
+            ctypeTable = table;
+        }
+        return table;
+    }
+
     /** onigenc_single_byte_mbc_to_code
      */
     @Override
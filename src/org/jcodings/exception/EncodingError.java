@@ -1,6 +1,6 @@
 package org.jcodings.exception;
 
-import org.jcodings.util.IntHash;
+import org.jcodings.util.IntMap;
 
 public enum EncodingError {
     ERR_TYPE_BUG(ErrorMessages.ERR_TYPE_BUG, ErrorCodes.ERR_TYPE_BUG),
@@ -45,7 +45,7 @@ public enum EncodingError {
         return CODE_TO_ERROR.get(code);
     }
 
-    private static final IntHash<EncodingError> CODE_TO_ERROR = new IntHash<EncodingError>();
+    private static final IntMap<EncodingError> CODE_TO_ERROR = new IntMap<EncodingError>(values().length);
     static {
         for (EncodingError error : EncodingError.values()) {
             CODE_TO_ERROR.put(error.getCode(), error);
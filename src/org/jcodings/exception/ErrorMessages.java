@@ -43,4 +43,5 @@ public interface ErrorMessages {
     final String ERR_TRANSCODER_ALREADY_REGISTERED = "transcoder from <%n> has been already registered";
     final String ERR_TRANSCODER_CLASS_DEF_NOT_FOUND = "transcoder class <%n> not found";
     final String ERR_TRANSCODER_LOAD_ERROR = "problem loading transcoder <%n>";
+    final String ERR_NO_SUCH_TRANSCODER = "no such transcoder <%n>";
 }
@@ -27,7 +27,7 @@ import org.jcodings.constants.CharacterType;
 import org.jcodings.exception.ErrorCodes;
 import org.jcodings.exception.ErrorMessages;
 import org.jcodings.exception.InternalException;
-import org.jcodings.util.CaseInsensitiveBytesHash;
+import org.jcodings.util.BytesMap;
 
 abstract class BaseEUCJPEncoding extends EucEncoding {
 
@@ -152,7 +152,7 @@ abstract class BaseEUCJPEncoding extends EucEncoding {
         CR_Cyrillic
     };
 
-    private static final CaseInsensitiveBytesHash<Integer> CTypeNameHash = new CaseInsensitiveBytesHash<Integer>();
+    private static final BytesMap<Integer> CTypeNameHash = new BytesMap<Integer>(true);
 
     static {
         String[] names = new String[] {"Hiragana", "Katakana", "Han", "Latin", "Greek", "Cyrillic"};
@@ -27,7 +27,7 @@ import org.jcodings.constants.CharacterType;
 import org.jcodings.exception.ErrorCodes;
 import org.jcodings.exception.ErrorMessages;
 import org.jcodings.exception.InternalException;
-import org.jcodings.util.BytesHash;
+import org.jcodings.util.BytesMap;
 
 abstract class BaseSJISEncoding extends CanBeTrailTableEncoding {
 
@@ -115,7 +115,7 @@ abstract class BaseSJISEncoding extends CanBeTrailTableEncoding {
         CR_Katakana
     };
 
-    private static final BytesHash<Integer> CTypeNameHash = new BytesHash<Integer>();
+    private static final BytesMap<Integer> CTypeNameHash = new BytesMap<Integer>(false);
 
     static {
         CTypeNameHash.put("Hiragana".getBytes(), 1 + CharacterType.MAX_STD_CTYPE);
@@ -31,7 +31,7 @@ public final class ISO8859_16Encoding extends ISOEncoding {
     }
 
     @Override
-    public int caseMap(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
+    protected int caseMapBytes(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
         int toStart = toP;
         int flags = flagP.value;
 
@@ -20,7 +20,7 @@
 package org.jcodings.specific;
 
 import org.jcodings.ApplyAllCaseFoldFunction;
-import org.jcodings.CaseFoldCodeItem;
+import org.jcodings.CaseFoldCodeBuffer;
 import org.jcodings.Config;
 import org.jcodings.ISOEncoding;
 import org.jcodings.IntHolder;
@@ -40,56 +40,47 @@ public final class ISO8859_1Encoding extends ISOEncoding {
     /** get_case_fold_codes_by_str
      */
     @Override
-    public CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        buffer.clear();
         int b = bytes[p] & 0xff;
 
         if (0x41 <= b && b <= 0x5a) {
-            CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, b + 0x20);
+            buffer.add(1, b + 0x20);
 
             if (b == 0x53 && end > p + 1 &&
                (bytes[p+1] == (byte)0x53 || bytes[p+1] == (byte)0x73)) { /* ss */
-                CaseFoldCodeItem item1 = CaseFoldCodeItem.create(2, SHARP_s);
-
-                return new CaseFoldCodeItem[]{item0, item1};
-            } else {
-                return new CaseFoldCodeItem[]{item0};
+                buffer.add(2, SHARP_s);
             }
         } else if (0x61 <= b && b <= 0x7a) {
-            CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, b - 0x20);
+            buffer.add(1, b - 0x20);
 
             if (b == 0x73 && end > p + 1 &&
                (bytes[p+1] == (byte)0x73 || bytes[p+1] == (byte)0x53)) { /* ss */
-                CaseFoldCodeItem item1 = CaseFoldCodeItem.create(2, SHARP_s);
-                return new CaseFoldCodeItem[]{item0, item1};
-            } else {
-                return new CaseFoldCodeItem[]{item0};
+                buffer.add(2, SHARP_s);
             }
-
         } else if (0xc0 <= b && b <= 0xcf) {
-            return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b + 0x20)};
+            buffer.add(1, b + 0x20);
         } else if (0xd0 <= b && b <= SHARP_s) {
             if (b == SHARP_s) {
-                CaseFoldCodeItem item0 = CaseFoldCodeItem.create(1, 's', 's');
-                CaseFoldCodeItem item1 = CaseFoldCodeItem.create(1, 'S', 'S');
-                CaseFoldCodeItem item2 = CaseFoldCodeItem.create(1, 's', 'S');
-                CaseFoldCodeItem item3 = CaseFoldCodeItem.create(1, 'S', 's');
-
-                return new CaseFoldCodeItem[]{item0, item1, item2, item3};
+                buffer.add(1, 's', 's');
+                buffer.add(1, 'S', 'S');
+                buffer.add(1, 's', 'S');
+                buffer.add(1, 'S', 's');
             } else if (b != 0xd7) {
-                return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b + 0x20)};
+                buffer.add(1, b + 0x20);
             }
         } else if (0xe0 <= b && b <= 0xef) {
-            return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b - 0x20)};
+            buffer.add(1, b - 0x20);
         } else if (0xf0 <= b && b <= 0xfe) {
             if (b != 0xf7) {
-                return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(1, b - 0x20)};
+                buffer.add(1, b - 0x20);
             }
         }
-        return CaseFoldCodeItem.EMPTY_FOLD_CODES;
+        return buffer.size();
     }
 
     @Override
-    public int caseMap(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
+    protected int caseMapBytes(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
         int toStart = toP;
         int flags = flagP.value;
 
@@ -34,7 +34,7 @@ public final class ISO8859_3Encoding extends ISOEncoding {
     static final int I_WITH_DOT_ABOVE = 0xA9;
 
     @Override
-    public int caseMap(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
+    protected int caseMapBytes(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
         int toStart = toP;
         int flags = flagP.value;
 
@@ -20,7 +20,7 @@
 package org.jcodings.specific;
 
 import org.jcodings.ApplyAllCaseFoldFunction;
-import org.jcodings.CaseFoldCodeItem;
+import org.jcodings.CaseFoldCodeBuffer;
 import org.jcodings.ISOEncoding;
 import org.jcodings.IntHolder;
 import org.jcodings.ascii.AsciiTables;
@@ -47,8 +47,8 @@ public final class ISO8859_8Encoding extends ISOEncoding {
     }
 
     @Override
-    public CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
-        return asciiCaseFoldCodesByString(flag, bytes, p, end);
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        return asciiCaseFoldCodesByString(flag, bytes, p, end, buffer);
     }
 
     static final short ISO8859_8CtypeTable[] = {
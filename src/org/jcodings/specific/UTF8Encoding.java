@@ -34,6 +34,19 @@ public final class UTF8Encoding extends BaseUTF8Encoding {
         return lengthForTwoUptoFour(bytes, p, end, b, s);
     }
 
+    /**
+     * Classifies straight on the UTF-8 bytes, without decoding to code points
+     */
+    @Override
+    public int spanCType(byte[]bytes, int p, int end, int ctype) {
+        return ctypeMatcher(ctype).span(bytes, p, end);
+    }
+
+    @Override
+    public int findCType(byte[]bytes, int p, int end, int ctype) {
+        return ctypeMatcher(ctype).find(bytes, p, end);
+    }
+
     private static final int UTF8EncLen[] = {
         1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
         1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
@@ -35,7 +35,7 @@ final public class Windows_1254Encoding extends CaseFoldMapEncoding {
     static final int I_WITH_DOT_ABOVE = 0xDD;
 
     @Override
-    public int caseMap(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
+    protected int caseMapBytes(IntHolder flagP, byte[] bytes, IntHolder pp, int end, byte[] to, int toP, int toEnd) {
         int toStart = toP;
         int flags = flagP.value;
 
@@ -49,6 +49,14 @@ public final class EConv implements EConvFlags {
 
     public Encoding sourceEncoding, destinationEncoding;
 
+    private EConvListener listener = TranscoderDB.getDefaultListener();
+    int cycles; // resumptions of suspended transcodings, only counted with a listener
+    EConvStats.Counters statsCounters; // resolved once by the EConvStats listening to this converter
+
+    // scratch positions reused by every conversion so that steady state convert calls do not allocate
+    private final Ptr sweepIn = new Ptr(), sweepOut = new Ptr();
+    private final Ptr resultPosition = new Ptr(), inBufPosition = new Ptr();
+
     @Override
     public String toString() {
         return new String(source) + " => " + new String(destination);
@@ -196,7 +204,8 @@ public final class EConv implements EConvFlags {
                     ibytes = in;
                 } else {
                     previousTE = elements[i - 1];
-                    ipp = new Ptr(previousTE.dataStart);
+                    ipp = sweepIn;
+                    ipp.p = previousTE.dataStart;
                     ippIsStart = true;
                     is = previousTE.dataEnd;
                     ibytes = previousTE.bytes;
@@ -214,7 +223,8 @@ public final class EConv implements EConvFlags {
                         te.dataStart = te.bufStart;
                         te.dataEnd -= off;
                     }
-                    opp = new Ptr(te.dataEnd);
+                    opp = sweepOut;
+                    opp.p = te.dataEnd;
                     oppIsEnd = true;
                     os = te.bufEnd;
                     obytes = te.bytes;
@@ -233,6 +243,7 @@ public final class EConv implements EConvFlags {
                 int iold = ipp.p;
                 int oold = opp.p;
                 EConvResult res;
+                if (listener != null && te.transcoding.isSuspended()) cycles++;
                 te.lastResult = res = te.transcoding.convert(ibytes, ipp, is, obytes, opp, os, f);
 
                 if (ippIsStart) previousTE.dataStart = ipp.p;
@@ -390,9 +401,11 @@ public final class EConv implements EConvFlags {
             }
         }
 
-        Ptr resultPosition = new Ptr(0);
+        final Ptr resultPosition = this.resultPosition;
+        resultPosition.p = 0;
         if (inBuf != null && inBuf.dataStart != inBuf.dataEnd) {
-            Ptr inDataStartPtr = new Ptr(inBuf.dataStart);
+            Ptr inDataStartPtr = inBufPosition;
+            inDataStartPtr.p = inBuf.dataStart;
             res = transConv(inBuf.bytes, inDataStartPtr, inBuf.dataEnd, out, outPtr, outStop, (flags & ~AFTER_OUTPUT) | PARTIAL_INPUT, resultPosition);
             inBuf.dataStart = inDataStartPtr.p;
             if (!res.isSourceBufferEmpty()) return convertInternalResult(res, resultPosition);
@@ -432,8 +445,37 @@ public final class EConv implements EConvFlags {
         return res;
     }
 
-    /* rb_econv_convert */
+    public EConvListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener notified of this converter's conversions, <code>null</code> disables the notifications
+     */
+    public void setListener(EConvListener listener) {
+        this.listener = listener;
+    }
+
+    /* rb_econv_convert
+     * Allocation free in steady state: positions are kept in scratch fields of the converter and its transcodings,
+     * only error handling with replacement or a listener may allocate.
+     */
     public EConvResult convert(byte[] in, Ptr inPtr, int inStop, byte[] out, Ptr outPtr, int outStop, int flags) {
+        final EConvListener listener = this.listener;
+        if (listener == null) return convert(in, inPtr, inStop, out, outPtr, outStop, flags, null);
+
+        long start = System.nanoTime();
+        int inStart = inPtr == null ? 0 : inPtr.p;
+        int outStart = outPtr == null ? 0 : outPtr.p;
+        int cyclesStart = cycles;
+        EConvResult ret = convert(in, inPtr, inStop, out, outPtr, outStop, flags, listener);
+        int bytesIn = in == null || inPtr == null ? 0 : inPtr.p - inStart;
+        int bytesOut = out == null || outPtr == null ? 0 : outPtr.p - outStart;
+        listener.converted(this, ret, bytesIn, bytesOut, cycles - cyclesStart, System.nanoTime() - start);
+        return ret;
+    }
+
+    private EConvResult convert(byte[] in, Ptr inPtr, int inStop, byte[] out, Ptr outPtr, int outStop, int flags, EConvListener listener) {
         started = true;
 
         if (in == null || inPtr == null) {
@@ -453,17 +495,26 @@ public final class EConv implements EConvFlags {
             if (ret.isInvalidByteSequence() || ret.isIncompleteInput()) {
                 switch (this.flags & INVALID_MASK) {
                 case INVALID_REPLACE:
-                    if (outputReplacementCharacter() == 0) continue resume;
+                    if (outputReplacementCharacter() == 0) {
+                        if (listener != null) listener.replaced(this, ret, false);
+                        continue resume;
+                    }
                 }
             }
 
             if (ret.isUndefinedConversion()) {
                 switch (this.flags & UNDEF_MASK) {
                 case UNDEF_REPLACE:
-                    if (outputReplacementCharacter() == 0) continue resume;
+                    if (outputReplacementCharacter() == 0) {
+                        if (listener != null) listener.replaced(this, ret, false);
+                        continue resume;
+                    }
                     break;
                 case UNDEF_HEX_CHARREF:
-                    if (outputHexCharref() == 0) continue resume;
+                    if (outputHexCharref() == 0) {
+                        if (listener != null) listener.replaced(this, ret, true);
+                        continue resume;
+                    }
                     break;
                 }
             }
@@ -471,13 +522,18 @@ public final class EConv implements EConvFlags {
         }
     }
 
+    private static final byte[] UTF32BE = "UTF-32BE".getBytes();
+    private static final byte[] US_ASCII = "US-ASCII".getBytes();
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes();
+    private final byte[] charrefBuf = new byte[12]; // "&#x" up to 8 hex digits ";"
+
     /* output_hex_charref */
     private int outputHexCharref() {
         final byte[] utfBytes;
         final int utfP;
         int utfLen;
 
-        if (caseInsensitiveEquals(lastError.source, "UTF-32BE".getBytes())) {
+        if (caseInsensitiveEquals(lastError.source, UTF32BE)) {
             utfBytes = lastError.errorBytes;
             utfP = lastError.errorBytesP;
             utfLen = lastError.errorBytesLength;
@@ -486,7 +542,7 @@ public final class EConv implements EConvFlags {
 
             // TODO: better calculation?
             byte[] utfBuf = new byte[lastError.errorBytesLength * UTF32BEEncoding.INSTANCE.maxLength()];
-            utfBytes = allocateConvertedString(lastError.source, "UTF-32BE".getBytes(), lastError.errorBytes, lastError.errorBytesP, lastError.errorBytesLength, utfBuf, utfLenA);
+            utfBytes = allocateConvertedString(lastError.source, UTF32BE, lastError.errorBytes, lastError.errorBytesP, lastError.errorBytesLength, utfBuf, utfLenA);
 
             if (utfBytes == null) return -1;
             utfP = 0;
@@ -502,9 +558,17 @@ public final class EConv implements EConvFlags {
             u += (utfBytes[p + 1] & 0xff) << 16;
             u += (utfBytes[p + 2] & 0xff) << 8;
             u += (utfBytes[p + 3] & 0xff);
-            byte[] charrefbuf = String.format("&#x%X;", u).getBytes(); // FIXME: use faster sprintf ??
-
-            if (insertOutput(charrefbuf, 0, charrefbuf.length, "US-ASCII".getBytes()) == -1) return -1;
+            byte[] charrefbuf = this.charrefBuf;
+            int len = 0;
+            charrefbuf[len++] = '&';
+            charrefbuf[len++] = '#';
+            charrefbuf[len++] = 'x';
+            int shift = 28;
+            while (shift > 0 && (u >>> shift) == 0) shift -= 4;
+            for (; shift >= 0; shift -= 4) charrefbuf[len++] = HEX_DIGITS[(u >>> shift) & 0xf];
+            charrefbuf[len++] = ';';
+
+            if (insertOutput(charrefbuf, 0, len, US_ASCII) == -1) return -1;
 
             p += 4;
             utfLen -= 4;
@@ -535,6 +599,7 @@ public final class EConv implements EConvFlags {
 
         EConv ec = TranscoderDB.open(source, destination, 0);
         if (ec == null) return null;
+        ec.listener = null; // internal conversion, not reported
 
         byte[] dstStr;
         if (callerDstBuf != null) {
@@ -0,0 +1,44 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.transcode;
+
+/**
+ * Receives metrics of {@link EConv} conversions. A converter without a listener skips all bookkeeping,
+ * see {@link EConv#setListener} and {@link TranscoderDB#setDefaultListener}. Callbacks run on the converting thread.
+ */
+public interface EConvListener {
+    /**
+     * Called once per {@link EConv#convert} call
+     *
+     * @param bytesIn   bytes consumed from the input
+     * @param bytesOut  bytes written to the output
+     * @param cycles    number of times a transcoding of the pipeline suspended in the middle of a character was resumed
+     * @param nanos     time spent in the call
+     */
+    void converted(EConv econv, EConvResult result, int bytesIn, int bytesOut, int cycles, long nanos);
+
+    /**
+     * Called for every replacement written by {@link EConv#convert} in place of an invalid or undefined character
+     *
+     * @param cause       the error replaced
+     * @param hexCharref  whether a hex character reference was written instead of the replacement string
+     */
+    void replaced(EConv econv, EConvResult cause, boolean hexCharref);
+}
@@ -0,0 +1,289 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.transcode;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcodings.util.MBeans;
+
+/**
+ * {@link EConvListener} summing conversion metrics per source/destination pair in striped counters, so converters
+ * on many threads can share one instance. Poll it through {@link #get} and {@link #getAll}, or publish it over JMX
+ * with {@link #registerMBean}. The counters of a pair are looked up once per converter and then cached on it.
+ */
+public final class EConvStats implements EConvListener {
+    public static final String MBEAN_NAME = "org.jcodings:type=EConvStats";
+
+    private final ConcurrentHashMap<Pair, Counters> pairs = new ConcurrentHashMap<Pair, Counters>();
+
+    public static final class Counters {
+        final EConvStats owner;
+        final LongAdder conversions = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder invalidByteSequences = new LongAdder();
+        final LongAdder undefinedConversions = new LongAdder();
+        final LongAdder incompleteInputs = new LongAdder();
+        final LongAdder replacements = new LongAdder();
+        final LongAdder hexCharrefs = new LongAdder();
+        final LongAdder cycles = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        Counters(EConvStats owner) {
+            this.owner = owner;
+        }
+
+        void reset() {
+            conversions.reset();
+            bytesIn.reset();
+            bytesOut.reset();
+            invalidByteSequences.reset();
+            undefinedConversions.reset();
+            incompleteInputs.reset();
+            replacements.reset();
+            hexCharrefs.reset();
+            cycles.reset();
+            nanos.reset();
+        }
+
+        public long getConversions() {
+            return conversions.sum();
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        public long getInvalidByteSequences() {
+            return invalidByteSequences.sum();
+        }
+
+        public long getUndefinedConversions() {
+            return undefinedConversions.sum();
+        }
+
+        public long getIncompleteInputs() {
+            return incompleteInputs.sum();
+        }
+
+        public long getReplacements() {
+            return replacements.sum();
+        }
+
+        public long getHexCharrefs() {
+            return hexCharrefs.sum();
+        }
+
+        public long getCycles() {
+            return cycles.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "conversions=" + getConversions() + " in=" + getBytesIn() + " out=" + getBytesOut() +
+                    " invalid=" + getInvalidByteSequences() + " undefined=" + getUndefinedConversions() + " incomplete=" + getIncompleteInputs() +
+                    " replacements=" + getReplacements() + " hexCharrefs=" + getHexCharrefs() + " cycles=" + getCycles() + " nanos=" + getNanos();
+        }
+    }
+
+    private static final class Pair {
+        final byte[] source, destination;
+        final int hash;
+
+        Pair(byte[] source, byte[] destination) {
+            this.source = source == null ? NONE : source;
+            this.destination = destination == null ? NONE : destination;
+            this.hash = Arrays.hashCode(this.source) * 31 + Arrays.hashCode(this.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Pair)) return false;
+            Pair o = (Pair)other;
+            return hash == o.hash && Arrays.equals(source, o.source) && Arrays.equals(destination, o.destination);
+        }
+
+        @Override
+        public String toString() {
+            return new String(source) + " => " + new String(destination);
+        }
+
+        private static final byte[] NONE = new byte[0];
+    }
+
+    private Counters counters(EConv econv) {
+        Counters counters = econv.statsCounters;
+        if (counters != null && counters.owner == this) return counters;
+        Pair pair = new Pair(econv.source, econv.destination);
+        counters = pairs.get(pair);
+        if (counters == null) {
+            Counters existing = pairs.putIfAbsent(pair, counters = new Counters(this));
+            if (existing != null) counters = existing;
+        }
+        econv.statsCounters = counters;
+        return counters;
+    }
+
+    public void converted(EConv econv, EConvResult result, int bytesIn, int bytesOut, int cycles, long nanos) {
+        Counters counters = counters(econv);
+        counters.conversions.increment();
+        counters.bytesIn.add(bytesIn);
+        counters.bytesOut.add(bytesOut);
+        counters.cycles.add(cycles);
+        counters.nanos.add(nanos);
+        switch (result) {
+        case InvalidByteSequence:
+            counters.invalidByteSequences.increment();
+            break;
+        case UndefinedConversion:
+            counters.undefinedConversions.increment();
+            break;
+        case IncompleteInput:
+            counters.incompleteInputs.increment();
+            break;
+        default:
+            break;
+        }
+    }
+
+    public void replaced(EConv econv, EConvResult cause, boolean hexCharref) {
+        Counters counters = counters(econv);
+        (hexCharref ? counters.hexCharrefs : counters.replacements).increment();
+        switch (cause) {
+        case InvalidByteSequence:
+            counters.invalidByteSequences.increment();
+            break;
+        case UndefinedConversion:
+            counters.undefinedConversions.increment();
+            break;
+        case IncompleteInput:
+            counters.incompleteInputs.increment();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Counters of a source/destination pair as named by the converter, <code>null</code> before its first conversion
+     */
+    public Counters get(byte[] source, byte[] destination) {
+        return pairs.get(new Pair(source, destination));
+    }
+
+    /**
+     * All pairs, keyed as <code>"source =&gt; destination"</code>
+     */
+    public Map<String, Counters> getAll() {
+        TreeMap<String, Counters> all = new TreeMap<String, Counters>();
+        for (Map.Entry<Pair, Counters> entry : pairs.entrySet()) all.put(entry.getKey().toString(), entry.getValue());
+        return all;
+    }
+
+    /**
+     * Zeroes the counters of all pairs, converters keep using the counters they already resolved
+     */
+    public void reset() {
+        for (Counters counters : pairs.values()) counters.reset();
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server, <code>name</code> defaults to {@link #MBEAN_NAME}
+     */
+    public void registerMBean(String name) {
+        MBeans.register(name == null ? MBEAN_NAME : name, EConvStatsMBean.class, new Bean(this));
+    }
+
+    private static final class Bean implements EConvStatsMBean {
+        private final EConvStats stats;
+
+        Bean(EConvStats stats) {
+            this.stats = stats;
+        }
+
+        private long total(int field) {
+            long sum = 0;
+            for (Counters counters : stats.pairs.values()) {
+                switch (field) {
+                case 0: sum += counters.getConversions(); break;
+                case 1: sum += counters.getBytesIn(); break;
+                case 2: sum += counters.getBytesOut(); break;
+                case 3: sum += counters.getInvalidByteSequences() + counters.getUndefinedConversions() + counters.getIncompleteInputs(); break;
+                case 4: sum += counters.getReplacements() + counters.getHexCharrefs(); break;
+                default: sum += counters.getNanos(); break;
+                }
+            }
+            return sum;
+        }
+
+        public long getConversions() {
+            return total(0);
+        }
+
+        public long getBytesIn() {
+            return total(1);
+        }
+
+        public long getBytesOut() {
+            return total(2);
+        }
+
+        public long getErrors() {
+            return total(3);
+        }
+
+        public long getReplacements() {
+            return total(4);
+        }
+
+        public long getNanos() {
+            return total(5);
+        }
+
+        public String[] getPairs() {
+            Map<String, Counters> all = stats.getAll();
+            String[] result = new String[all.size()];
+            int i = 0;
+            for (Map.Entry<String, Counters> entry : all.entrySet()) result[i++] = entry.getKey() + ": " + entry.getValue();
+            return result;
+        }
+
+        public void reset() {
+            stats.reset();
+        }
+    }
+}
@@ -1119,13 +1119,14 @@ public class TranscodeFunctions {
     }
 
     private static int getInfo(int nextInfo, byte[] sp) {
+        TranscoderTable table = From_UTF8_MAC_Transcoder.INSTANCE.table();
         int pos = 0;
         while (pos < bufBytesize(sp)) {
             int next_byte = toUnsignedInt(bufAt(sp, pos++));
-            if (next_byte < UTF8MAC_BL_MIN_BYTE(nextInfo) || UTF8MAC_BL_MAX_BYTE(nextInfo) < next_byte)
+            if (next_byte < UTF8MAC_BL_MIN_BYTE(table, nextInfo) || UTF8MAC_BL_MAX_BYTE(table, nextInfo) < next_byte)
                 nextInfo = TranscodingInstruction.INVALID;
             else {
-                nextInfo = UTF8MAC_BL_ACTION(nextInfo, (byte)next_byte);
+                nextInfo = UTF8MAC_BL_ACTION(table, nextInfo, (byte)next_byte);
             }
             if ((nextInfo & 3) == 0) continue;
             break;
@@ -1134,27 +1135,43 @@ public class TranscodeFunctions {
     }
 
     public static int UTF8MAC_BL_MIN_BYTE(int nextInfo) {
-        return toUnsignedInt(From_UTF8_MAC_Transcoder.INSTANCE.byteArray[BL_BASE(nextInfo)]);
+        return UTF8MAC_BL_MIN_BYTE(From_UTF8_MAC_Transcoder.INSTANCE.table(), nextInfo);
     }
 
     public static int UTF8MAC_BL_MAX_BYTE(int nextInfo) {
-        return toUnsignedInt(From_UTF8_MAC_Transcoder.INSTANCE.byteArray[BL_BASE(nextInfo) + 1]);
+        return UTF8MAC_BL_MAX_BYTE(From_UTF8_MAC_Transcoder.INSTANCE.table(), nextInfo);
     }
 
     public static int UTF8MAC_BL_OFFSET(int nextInfo, int b) {
-        return toUnsignedInt(From_UTF8_MAC_Transcoder.INSTANCE.byteArray[BL_BASE(nextInfo) + 2 + b - UTF8MAC_BL_MIN_BYTE(nextInfo)]);
+        return UTF8MAC_BL_OFFSET(From_UTF8_MAC_Transcoder.INSTANCE.table(), nextInfo, b);
     }
 
     public static int UTF8MAC_BL_ACTION(int nextInfo, byte b) {
-        return From_UTF8_MAC_Transcoder.INSTANCE.intArray[BL_INFO(nextInfo) + UTF8MAC_BL_OFFSET(nextInfo, toUnsignedInt(b))];
+        return UTF8MAC_BL_ACTION(From_UTF8_MAC_Transcoder.INSTANCE.table(), nextInfo, b);
     }
 
-    private static int BL_BASE(int nextInfo) {
-        return BYTE_ADDR(BYTE_LOOKUP_BASE(WORD_ADDR(nextInfo)));
+    private static int UTF8MAC_BL_MIN_BYTE(TranscoderTable table, int nextInfo) {
+        return toUnsignedInt(table.byteAt(BL_BASE(table, nextInfo)));
     }
 
-    private static int BL_INFO(int nextInfo) {
-        return WORD_ADDR(BYTE_LOOKUP_INFO(WORD_ADDR(nextInfo)));
+    private static int UTF8MAC_BL_MAX_BYTE(TranscoderTable table, int nextInfo) {
+        return toUnsignedInt(table.byteAt(BL_BASE(table, nextInfo) + 1));
+    }
+
+    private static int UTF8MAC_BL_OFFSET(TranscoderTable table, int nextInfo, int b) {
+        return toUnsignedInt(table.byteAt(BL_BASE(table, nextInfo) + 2 + b - UTF8MAC_BL_MIN_BYTE(table, nextInfo)));
+    }
+
+    private static int UTF8MAC_BL_ACTION(TranscoderTable table, int nextInfo, byte b) {
+        return table.wordAt(BL_INFO(table, nextInfo) + UTF8MAC_BL_OFFSET(table, nextInfo, toUnsignedInt(b)));
+    }
+
+    private static int BL_BASE(TranscoderTable table, int nextInfo) {
+        return BYTE_ADDR(BYTE_LOOKUP_BASE(table, WORD_ADDR(nextInfo)));
+    }
+
+    private static int BL_INFO(TranscoderTable table, int nextInfo) {
+        return WORD_ADDR(BYTE_LOOKUP_INFO(table, WORD_ADDR(nextInfo)));
     }
 
     private static int BYTE_ADDR(int index) {
@@ -1165,12 +1182,12 @@ public class TranscodeFunctions {
         return TranscodeTableSupport.INFO2WORDINDEX(index);
     }
 
-    private static int BYTE_LOOKUP_BASE(int bl) {
-        return From_UTF8_MAC_Transcoder.INSTANCE.intArray[bl];
+    private static int BYTE_LOOKUP_BASE(TranscoderTable table, int bl) {
+        return table.wordAt(bl);
     }
 
-    private static int BYTE_LOOKUP_INFO(int bl) {
-        return From_UTF8_MAC_Transcoder.INSTANCE.intArray[bl + 1];
+    private static int BYTE_LOOKUP_INFO(TranscoderTable table, int bl) {
+        return table.wordAt(bl + 1);
     }
 
     private static int bufInt(byte[] statep, int base) {
@@ -19,11 +19,13 @@
  */
 package org.jcodings.transcode;
 
+import java.io.File;
+
 import org.jcodings.exception.ErrorMessages;
 import org.jcodings.exception.InternalException;
-import org.jcodings.util.ArrayReader;
 import org.jcodings.util.BytesHash;
 import org.jcodings.util.ObjHash;
+import org.jcodings.util.TableCache;
 
 public abstract class Transcoder implements TranscodingInstruction {
 
@@ -35,13 +37,8 @@ public abstract class Transcoder implements TranscodingInstruction {
 
         this.treeStart = treeStart;
 
-        byte[] bytes = byteArrayHash.get(arrayKey);
-        if (bytes == null) byteArrayHash.put(arrayKey, bytes = ArrayReader.readByteArray("Transcoder_" + arrayKey + "_ByteArray"));
-        this.byteArray = bytes;
-
-        int[] ints = wordArrayHash.get(arrayKey);
-        if (ints == null) wordArrayHash.put(arrayKey, ints = ArrayReader.readIntArray("Transcoder_" + arrayKey + "_WordArray"));
-        this.intArray = ints;
+        this.tableHandle = tableHandle(arrayKey);
+        this.tableHandle.get();
 
         this.inputUnitLength = inputUnitLength;
         this.maxInput = maxInput;
@@ -68,8 +65,11 @@ public abstract class Transcoder implements TranscodingInstruction {
 
     final int treeStart;
 
-    final byte[] byteArray;
-    final int[] intArray;
+    final TableCache.Handle<TranscoderTable> tableHandle;
+
+    final TranscoderTable table() {
+        return tableHandle.get();
+    }
 
     // static final int wordSize = 4;
     public final int inputUnitLength, maxInput, maxOutput;
@@ -179,8 +179,51 @@ public abstract class Transcoder implements TranscodingInstruction {
         }
     }
 
-    static final ObjHash<String, byte[]> byteArrayHash = new ObjHash<String, byte[]>();
-    static final ObjHash<String, int[]> wordArrayHash = new ObjHash<String, int[]>();
+    static final ObjHash<String, TableCache.Handle<TranscoderTable>> tableHash = new ObjHash<String, TableCache.Handle<TranscoderTable>>();
+
+    // tables are shared between transcoders and go through TableCache so rarely used ones can be evicted
+    private static TableCache.Handle<TranscoderTable> tableHandle(final String arrayKey) {
+        synchronized (tableHash) {
+            TableCache.Handle<TranscoderTable> handle = tableHash.get(arrayKey);
+            if (handle == null) {
+                tableHash.put(arrayKey, handle = new TableCache.Handle<TranscoderTable>() {
+                    protected TranscoderTable load() {
+                        return TranscoderTable.load(arrayKey);
+                    }
+
+                    protected long sizeOf(TranscoderTable table) {
+                        return table.heapSize();
+                    }
+                });
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * Number of distinct tables referenced by the transcoders created so far, loaded or not
+     */
+    public static int getTableCount() {
+        synchronized (tableHash) {
+            return tableHash.size();
+        }
+    }
+
+    /**
+     * Directory where transcoder tables get extracted to and memory mapped from instead of being
+     * read into the heap, <code>null</code> disables mapping. Tables already loaded are dropped and get read or
+     * mapped again on their next use. Defaults to the <code>jcodings.transcoder.mapped.dir</code> system property.
+     */
+    public static void setMappedTableDirectory(File directory) {
+        TranscoderTable.mappedDirectory = directory;
+        synchronized (tableHash) {
+            for (TableCache.Handle<TranscoderTable> handle : tableHash) handle.discard();
+        }
+    }
+
+    public static File getMappedTableDirectory() {
+        return TranscoderTable.mappedDirectory;
+    }
 
     @Override
     public String toString() {
@@ -191,15 +234,16 @@ public abstract class Transcoder implements TranscodingInstruction {
         String s = "Transcoder (" + new String(source) + " => " + new String(destination) + ")\n";
         s += "  class: " + getClass().getSimpleName() + "\n";
         s += "  treeStart: " + treeStart + "\n";
-        s += "  byteArray:" + byteArray.length + " (";
+        TranscoderTable table = table();
+        s += "  byteArray:" + table.byteLength() + " (";
         for (int i = 0; i < 20; i++) {
-            s += (byteArray[i] & 0xff) + ", ";
+            s += (table.byteAt(i) & 0xff) + ", ";
         }
         s += "...)\n";
 
-        s += "  wordArray:" + intArray.length + " (";
+        s += "  wordArray:" + table.wordLength() + " (";
         for (int i = 0; i < 20; i++) {
-            s += (intArray[i] & 0xffffffffl) + ", ";
+            s += (table.wordAt(i) & 0xffffffffl) + ", ";
         }
         s += "...)\n";
 
@@ -52,7 +52,7 @@ public class TranscoderDB implements EConvFlags {
         }
 
         /* load_transcoder_entry */
-        public Transcoder getTranscoder() {
+        public synchronized Transcoder getTranscoder() {
             if (transcoder == null) {
                 if (transcoderClass != null) {
                     transcoder = TranscoderList.getInstance(transcoderClass);
@@ -188,6 +188,19 @@ public class TranscoderDB implements EConvFlags {
         return -1;
     }
 
+    private static volatile EConvListener defaultListener;
+
+    public static EConvListener getDefaultListener() {
+        return defaultListener;
+    }
+
+    /**
+     * Sets the listener given to converters created from now on, <code>null</code> (the default) leaves them without one
+     */
+    public static void setDefaultListener(EConvListener listener) {
+        defaultListener = listener;
+    }
+
     /* rb_econv_alloc */
     public static EConv alloc(int n) {
         return new EConv(n);
@@ -0,0 +1,128 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.transcode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import org.jcodings.util.ArrayReader;
+
+/**
+ * Byte and word tables backing a transcoder, either heap arrays or read only memory mapped files.
+ *
+ * Mapped tables are extracted once into a directory given by the <code>jcodings.transcoder.mapped.dir</code>
+ * system property (or {@link Transcoder#setMappedTableDirectory(File)}) so that the page cache is shared
+ * by all processes using the same directory.
+ */
+abstract class TranscoderTable {
+    static final String MAPPED_DIR_PROPERTY = "jcodings.transcoder.mapped.dir";
+
+    static volatile File mappedDirectory;
+    static {
+        String dir = System.getProperty(MAPPED_DIR_PROPERTY);
+        if (dir != null && dir.length() > 0) mappedDirectory = new File(dir);
+    }
+
+    abstract byte byteAt(int index);
+    abstract int wordAt(int index);
+    abstract int byteLength();
+    abstract int wordLength();
+
+    /**
+     * Bytes retained on the java heap
+     */
+    abstract long heapSize();
+
+    static TranscoderTable load(String arrayKey) {
+        String byteName = "Transcoder_" + arrayKey + "_ByteArray";
+        String wordName = "Transcoder_" + arrayKey + "_WordArray";
+        File dir = mappedDirectory;
+        if (dir != null) {
+            try {
+                return new Mapped(ArrayReader.mapPayload(dir, byteName), ArrayReader.mapPayload(dir, wordName));
+            } catch (IOException ioe) {
+                // unusable cache directory, keep working from the heap
+            }
+        }
+        return new Heap(ArrayReader.readByteArray(byteName), ArrayReader.readIntArray(wordName));
+    }
+
+    static final class Heap extends TranscoderTable {
+        private final byte[] bytes;
+        private final int[] words;
+
+        Heap(byte[] bytes, int[] words) {
+            this.bytes = bytes;
+            this.words = words;
+        }
+
+        byte byteAt(int index) {
+            return bytes[index];
+        }
+
+        int wordAt(int index) {
+            return words[index];
+        }
+
+        int byteLength() {
+            return bytes.length;
+        }
+
+        int wordLength() {
+            return words.length;
+        }
+
+        long heapSize() {
+            return bytes.length + ((long)words.length << 2);
+        }
+    }
+
+    static final class Mapped extends TranscoderTable {
+        private final ByteBuffer bytes;
+        private final IntBuffer words;
+
+        Mapped(ByteBuffer bytes, ByteBuffer words) {
+            this.bytes = bytes;
+            this.words = words.asIntBuffer();
+        }
+
+        byte byteAt(int index) {
+            return bytes.get(index);
+        }
+
+        int wordAt(int index) {
+            return words.get(index);
+        }
+
+        int byteLength() {
+            return bytes.capacity();
+        }
+
+        int wordLength() {
+            return words.capacity();
+        }
+
+        long heapSize() {
+            return 0;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import static java.lang.Byte.toUnsignedInt;
 public class Transcoding implements TranscodingInstruction {
     public Transcoding(Transcoder transcoder, int flags) {
         this.transcoder = transcoder;
+        this.table = transcoder.table();
         this.flags = flags;
         this.resumePosition = START;
         this.recognizedLength = 0;
@@ -39,6 +40,8 @@ public class Transcoding implements TranscodingInstruction {
     }
 
     public final Transcoder transcoder;
+    // pinned for the lifetime of this transcoding, the transcoder itself only references it through the table cache
+    private final TranscoderTable table;
     private int flags;
 
     private int resumePosition;
@@ -57,6 +60,10 @@ public class Transcoding implements TranscodingInstruction {
 
     private EConvResult suspendResult;
 
+    // out parameters of transcode_char_start, kept across calls so that resuming does not allocate
+    private final int[] charLen = new int[1];
+    private final byte[][] charBytes = new byte[1][];
+
     void close() {
         transcoder.stateFinish(state);
     }
@@ -83,6 +90,11 @@ public class Transcoding implements TranscodingInstruction {
         return recognizedLength + (inP - inCharStart);
     }
 
+    // whether the next convert call resumes in the middle of a character
+    boolean isSuspended() {
+        return resumePosition != START && resumePosition != FINISHED;
+    }
+
     /* rb_transcoding_convert */
     EConvResult convert(byte[] in, Ptr inPtr, int inStop, byte[] out, Ptr outPtr, int outStop, int flags) {
         return transcodeRestartable(in, inPtr, inStop, out, outPtr, outStop, flags);
@@ -113,8 +125,8 @@ public class Transcoding implements TranscodingInstruction {
 
     private Ptr inPos;
 
-    private static int STR1_LENGTH(byte[] bytes, int byteaddr) {
-        return bytes[byteaddr] + 4;
+    private static int STR1_LENGTH(TranscoderTable table, int byteaddr) {
+        return table.byteAt(byteaddr) + 4;
     }
 
     private static int STR1_BYTEINDEX(int w) {
@@ -404,13 +416,13 @@ public class Transcoding implements TranscodingInstruction {
 
                 case RESUME_STRING:
                     if (SUSPEND == SUSPEND_OBUF(this, out_stop, in_bytes, in_p, inchar_start, in_pos, out_pos, out_p, readagain_len, RESUME_STRING)) return suspendResult;
-                    out_bytes[out_p++] = transcoder.byteArray[BYTE_ADDR(STR1_BYTEINDEX(nextInfo)) + 1 + outputIndex];
+                    out_bytes[out_p++] = table.byteAt(BYTE_ADDR(STR1_BYTEINDEX(nextInfo)) + 1 + outputIndex);
                     outputIndex++;
                     // fall through
                 case STRING:
-                    while (outputIndex < STR1_LENGTH(transcoder.byteArray, BYTE_ADDR(STR1_BYTEINDEX(nextInfo)))) {
+                    while (outputIndex < STR1_LENGTH(table, BYTE_ADDR(STR1_BYTEINDEX(nextInfo)))) {
                         if (SUSPEND == SUSPEND_OBUF(this, out_stop, in_bytes, in_p, inchar_start, in_pos, out_pos, out_p, readagain_len, RESUME_STRING)) return suspendResult;
-                        out_bytes[out_p++] = transcoder.byteArray[BYTE_ADDR(STR1_BYTEINDEX(nextInfo)) + 1 + outputIndex];
+                        out_bytes[out_p++] = table.byteAt(BYTE_ADDR(STR1_BYTEINDEX(nextInfo)) + 1 + outputIndex);
                         outputIndex++;
                     }
                     ip = START;
@@ -495,20 +507,14 @@ public class Transcoding implements TranscodingInstruction {
     }
 
     private int[] PREPARE_CHAR_LEN(int[] char_len) {
-        if (char_len == null) {
-            char_len = new int[]{0};
-        } else {
-            char_len[0] = 0;
-        }
+        if (char_len == null) char_len = charLen;
+        char_len[0] = 0;
         return char_len;
     }
 
     private byte[][] PREPARE_OUT_BYTES(byte[][] outBytes) {
-        if (outBytes == null) {
-            outBytes = new byte[1][];
-        } else {
-            outBytes[0] = null;
-        }
+        if (outBytes == null) outBytes = charBytes;
+        outBytes[0] = null;
         return outBytes;
     }
 
@@ -636,27 +642,27 @@ public class Transcoding implements TranscodingInstruction {
     }
 
     private static int BYTE_LOOKUP_BASE(Transcoding tc, int bl) {
-        return tc.transcoder.intArray[bl];
+        return tc.table.wordAt(bl);
     }
 
     private static int BYTE_LOOKUP_INFO(Transcoding tc, int bl) {
-        return tc.transcoder.intArray[bl + 1];
+        return tc.table.wordAt(bl + 1);
     }
 
     public static int BL_MIN_BYTE(Transcoding tc) {
-        return toUnsignedInt(tc.transcoder.byteArray[BL_BASE(tc)]);
+        return toUnsignedInt(tc.table.byteAt(BL_BASE(tc)));
     }
 
     public static int BL_MAX_BYTE(Transcoding tc) {
-        return toUnsignedInt(tc.transcoder.byteArray[BL_BASE(tc) + 1]);
+        return toUnsignedInt(tc.table.byteAt(BL_BASE(tc) + 1));
     }
 
     public static int BL_OFFSET(Transcoding tc, int b) {
-        return toUnsignedInt(tc.transcoder.byteArray[BL_BASE(tc) + 2 + b - BL_MIN_BYTE(tc)]);
+        return toUnsignedInt(tc.table.byteAt(BL_BASE(tc) + 2 + b - BL_MIN_BYTE(tc)));
     }
 
     public static int BL_ACTION(Transcoding tc, byte b) {
-        return tc.transcoder.intArray[BL_INFO(tc) + BL_OFFSET(tc, toUnsignedInt(b))];
+        return tc.table.wordAt(BL_INFO(tc) + BL_OFFSET(tc, toUnsignedInt(b)));
     }
 
     public static byte getGB4bt0(int a) {
@@ -0,0 +1,217 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.jcodings.Config;
+import org.jcodings.exception.InternalException;
+import org.jcodings.util.ArrayReader;
+
+/**
+ * Lookup from a code point (or a sequence of 2 or 3) to a record in a flat int array. A record is the packed
+ * flags/length word followed by the codes, the same layout as in the CaseFold / CaseUnfold_1x tables.
+ *
+ * Single code points use a two stage index: the high bits select a block in <code>index</code>, the low 8 bits
+ * an entry in that block holding the record offset + 1 (0 for none, block 0 is all empty). Sequences are packed
+ * into a long (21 bits per code point) and binary searched, so probes need no key arrays.
+ */
+final class CaseFoldTable {
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int INDEX_SIZE = (0x10ffff >>> BLOCK_SHIFT) + 1;
+
+    private static final int CODE_BITS = 21;
+
+    final int arity;
+    final int[] data;
+    final int[] keys;     // in table order, arity ints per entry
+    final int[] records;  // record offsets, parallel to the entries
+    private final int[] ends;
+
+    private char[] index, blocks;           // arity 1
+    private long[] sortedKeys;              // arity 2 and 3
+    private int[] sortedRecords;
+
+    private CaseFoldTable(int arity, int[] data, int[] keys, int[] records, int[] ends) {
+        this.arity = arity;
+        this.data = data;
+        this.keys = keys;
+        this.records = records;
+        this.ends = ends;
+    }
+
+    /**
+     * @return record offset for a code point or -1
+     */
+    int get(int code) {
+        int block = code >>> BLOCK_SHIFT;
+        if (block >= INDEX_SIZE) return -1;
+        return blocks[(index[block] << BLOCK_SHIFT) | (code & BLOCK_MASK)] - 1;
+    }
+
+    int get2(int a, int b) {
+        return search(pack(a, b));
+    }
+
+    int get3(int a, int b, int c) {
+        return search(pack(pack(a, b), c));
+    }
+
+    private static long pack(long key, int code) {
+        return (key << CODE_BITS) | (code & ((1 << CODE_BITS) - 1));
+    }
+
+    private int search(long key) {
+        long[] sorted = sortedKeys;
+        int low = 0, high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long k = sorted[mid];
+            if (k < key) {
+                low = mid + 1;
+            } else if (k > key) {
+                high = mid - 1;
+            } else {
+                return sortedRecords[mid];
+            }
+        }
+        return -1;
+    }
+
+    int flags(int record) {
+        return data[record] & ~Config.CodePointMask;
+    }
+
+    int length(int record) {
+        return data[record] & Config.CodePointMask;
+    }
+
+    int code(int record, int i) {
+        return data[record + 1 + i];
+    }
+
+    int size() {
+        return records.length;
+    }
+
+    /**
+     * Copy of the key sequence of an entry
+     */
+    int[] key(int entry) {
+        int[] key = new int[arity];
+        System.arraycopy(keys, entry * arity, key, 0, arity);
+        return key;
+    }
+
+    /**
+     * Index one past the last key read from the given table
+     */
+    int end(int table) {
+        return ends[table];
+    }
+
+    static CaseFoldTable read(String...tables) {
+        return read(1, tables);
+    }
+
+    static CaseFoldTable read(int arity, String...tables) {
+        IntBuffer[] buffers = new IntBuffer[tables.length];
+        int count = 0, dataSize = 0;
+        for (int t = 0; t < tables.length; t++) {
+            IntBuffer buffer = buffers[t] = ArrayReader.readIntBuffer(tables[t]);
+            int size = buffer.get(0);
+            count += size;
+            dataSize += buffer.remaining() - 1 - size * arity; // minus the size header and keys
+        }
+
+        int[] data = new int[dataSize];
+        int[] keys = new int[count * arity];
+        int[] records = new int[count];
+        int[] ends = new int[tables.length];
+        int n = 0, d = 0;
+        for (int t = 0; t < tables.length; t++) {
+            IntBuffer buffer = buffers[t];
+            int size = buffer.get();
+            for (int i = 0; i < size; i++, n++) {
+                buffer.get(keys, n * arity, arity);
+                records[n] = d;
+                int packed = buffer.get();
+                data[d++] = packed;
+                int length = packed & Config.CodePointMask;
+                buffer.get(data, d, length);
+                d += length;
+            }
+            ArrayReader.checkRemaining(buffer, tables[t]);
+            ends[t] = n;
+        }
+
+        CaseFoldTable table = new CaseFoldTable(arity, data, keys, records, ends);
+        if (arity == 1) {
+            table.buildIndex(tables[0]);
+        } else {
+            table.buildSorted();
+        }
+        return table;
+    }
+
+    private void buildIndex(String name) {
+        if (data.length >= Character.MAX_VALUE) throw new InternalException("case fold table too large: " + name);
+        int count = records.length;
+        index = new char[INDEX_SIZE];
+        int blockCount = 1;
+        for (int i = 0; i < count; i++) {
+            int block = keys[i] >>> BLOCK_SHIFT;
+            if (index[block] == 0) index[block] = (char)blockCount++;
+        }
+        blocks = new char[blockCount << BLOCK_SHIFT];
+        for (int i = 0; i < count; i++) { // later entries (locale tables) win like with putDirect
+            int code = keys[i];
+            blocks[(index[code >>> BLOCK_SHIFT] << BLOCK_SHIFT) | (code & BLOCK_MASK)] = (char)(records[i] + 1);
+        }
+    }
+
+    // insertion sort, these tables only have a few dozen entries
+    private void buildSorted() {
+        int count = records.length;
+        long[] sorted = new long[count];
+        int[] sortedRecs = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long key = 0;
+            for (int j = 0; j < arity; j++) key = pack(key, keys[i * arity + j]);
+            int pos = size;
+            while (pos > 0 && sorted[pos - 1] > key) pos--;
+            if (pos > 0 && sorted[pos - 1] == key) { // later entries win
+                sortedRecs[pos - 1] = records[i];
+                continue;
+            }
+            System.arraycopy(sorted, pos, sorted, pos + 1, size - pos);
+            System.arraycopy(sortedRecs, pos, sortedRecs, pos + 1, size - pos);
+            sorted[pos] = key;
+            sortedRecs[pos] = records[i];
+            size++;
+        }
+        sortedKeys = size == count ? sorted : Arrays.copyOf(sorted, size);
+        sortedRecords = size == count ? sortedRecs : Arrays.copyOf(sortedRecs, size);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Two stage lookup table mapping every code point to a small value (0..255): <code>index</code> selects a
+ * 256 entry block for <code>code &gt;&gt; 8</code>, identical blocks are stored once.
+ */
+final class CodePointTrie {
+    static final int MAX_CODE_POINT = 0x10ffff;
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final char[]index;
+    private final byte[]blocks;
+
+    private CodePointTrie(char[]index, byte[]blocks) {
+        this.index = index;
+        this.blocks = blocks;
+    }
+
+    int get(int code) {
+        if (code < 0 || code > MAX_CODE_POINT) return 0;
+        return blocks[(index[code >> BLOCK_SHIFT] << BLOCK_SHIFT) | (code & (BLOCK_SIZE - 1))] & 0xff;
+    }
+
+    static final class Builder {
+        private final byte[]values = new byte[MAX_CODE_POINT + 1];
+
+        /**
+         * Assigns <code>value</code> to all code points of a code range table (pair count followed by start/end pairs),
+         * later assignments win
+         */
+        Builder set(int[]range, int value) {
+            for (int i = 0; i < range[0]; i++) {
+                Arrays.fill(values, range[2 * i + 1], range[2 * i + 2] + 1, (byte)value);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the <code>bits</code> on all code points of a code range table, keeping the bits already set
+         */
+        Builder add(int[]range, int bits) {
+            for (int i = 0; i < range[0]; i++) {
+                for (int code = range[2 * i + 1]; code <= range[2 * i + 2]; code++) values[code] |= bits;
+            }
+            return this;
+        }
+
+        CodePointTrie build() {
+            char[]index = new char[(MAX_CODE_POINT + 1) >> BLOCK_SHIFT];
+            HashMap<Block, Integer> unique = new HashMap<Block, Integer>();
+            for (int i = 0; i < index.length; i++) {
+                Block block = new Block(values, i << BLOCK_SHIFT);
+                Integer n = unique.get(block);
+                if (n == null) unique.put(block, n = unique.size());
+                index[i] = (char)(int)n;
+            }
+            byte[]blocks = new byte[unique.size() << BLOCK_SHIFT];
+            for (Block block : unique.keySet()) {
+                System.arraycopy(values, block.offset, blocks, unique.get(block) << BLOCK_SHIFT, BLOCK_SIZE);
+            }
+            return new CodePointTrie(index, blocks);
+        }
+    }
+
+    private static final class Block {
+        final byte[]values;
+        final int offset;
+        final int hash;
+
+        Block(byte[]values, int offset) {
+            this.values = values;
+            this.offset = offset;
+            int h = 1;
+            for (int i = offset; i < offset + BLOCK_SIZE; i++) h = h * 31 + values[i];
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Block)) return false;
+            Block o = (Block)other;
+            if (o.hash != hash) return false;
+            for (int i = 0; i < BLOCK_SIZE; i++) if (values[offset + i] != o.values[o.offset + i]) return false;
+            return true;
+        }
+    }
+}
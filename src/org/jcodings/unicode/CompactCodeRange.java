@@ -0,0 +1,109 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import org.jcodings.CodeRange;
+
+/**
+ * Membership form of a code range table, smaller than the <code>[n, from1, to1, ...]</code> int array for the common
+ * shapes: a single range keeps two ints and ranges below U+10000 are kept as chars; anything else searches the int array.
+ */
+abstract class CompactCodeRange {
+    abstract boolean contains(int code);
+
+    /**
+     * Approximate heap footprint in bytes, as reported to the table cache
+     */
+    abstract long size();
+
+    static CompactCodeRange of(int[]range) {
+        int n = range[0];
+        if (n == 1) return new Single(range[1], range[2]);
+        if (n == 0 || range[2 * n] > 0xffff) return new Wide(range);
+        char[]bmp = new char[2 * n];
+        for (int i = 0; i < bmp.length; i++) bmp[i] = (char)range[i + 1];
+        return new Bmp(bmp);
+    }
+
+    static final class Single extends CompactCodeRange {
+        private final int from, to;
+
+        Single(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        boolean contains(int code) {
+            return code >= from && code <= to;
+        }
+
+        @Override
+        long size() {
+            return 8;
+        }
+    }
+
+    static final class Bmp extends CompactCodeRange {
+        private final char[]ranges; // from/to pairs, no count
+
+        Bmp(char[]ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        boolean contains(int code) {
+            if (code > 0xffff) return false;
+            int low = 0, high = ranges.length >> 1;
+            while (low < high) {
+                int x = (low + high) >> 1;
+                if (code > ranges[(x << 1) + 1]) {
+                    low = x + 1;
+                } else {
+                    high = x;
+                }
+            }
+            return low < ranges.length >> 1 && code >= ranges[low << 1];
+        }
+
+        @Override
+        long size() {
+            return (long)ranges.length << 1;
+        }
+    }
+
+    static final class Wide extends CompactCodeRange {
+        private final int[]range;
+
+        Wide(int[]range) {
+            this.range = range;
+        }
+
+        @Override
+        boolean contains(int code) {
+            return CodeRange.isInCodeRange(range, code);
+        }
+
+        @Override
+        long size() {
+            return 0; // the array is interned and shared with the range handle, which accounts for it
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import org.jcodings.IntHolder;
+
+/**
+ * Finds emoji sequences (UTS #51) in the raw bytes of a Unicode encoding: flag pairs, keycaps, modifier, tag,
+ * presentation and ZWJ sequences, as well as single characters with default emoji presentation. Characters that
+ * default to text presentation (digits, &copy;, ...) are only reported as part of such a sequence. Each code point is
+ * classified with one {@link CodePointTrie} lookup and scanning does not allocate.
+ */
+public final class EmojiScanner {
+    static final int EMOJI          = 0x01;
+    static final int PRESENTATION   = 0x02;
+    static final int MODIFIER       = 0x04;
+    static final int MODIFIER_BASE  = 0x08;
+    static final int COMPONENT      = 0x10;
+    static final int PICTOGRAPHIC   = 0x20;
+    static final int REGIONAL       = 0x40;
+
+    static final int ZWJ                = 0x200D;
+    static final int VARIATION_EMOJI    = 0xFE0F;
+    static final int COMBINING_KEYCAP   = 0x20E3;
+    static final int TAG_FIRST          = 0xE0020;
+    static final int TAG_LAST           = 0xE007E;
+    static final int CANCEL_TAG         = 0xE007F;
+
+    private final UnicodeEncoding encoding;
+
+    public EmojiScanner(UnicodeEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Looks for the next emoji sequence at or after <code>pp.value</code>.
+     *
+     * @return  the end of the sequence, with <code>pp.value</code> moved to its start, or -1 with
+     *          <code>pp.value</code> set to <code>end</code> when there is none
+     */
+    public int next(byte[]bytes, IntHolder pp, int end) {
+        final boolean asciiCompatible = encoding.isAsciiCompatible();
+        int p = pp.value;
+        while (p < end) {
+            if (asciiCompatible && bytes[p] >= 0 && (classes(bytes[p]) & EMOJI) == 0) {
+                p++;
+                continue;
+            }
+            int length = encoding.length(bytes, p, end);
+            if (length < 0) {
+                p++;
+                continue;
+            }
+            if ((classes(encoding.mbcToCode(bytes, p, end)) & (EMOJI | PICTOGRAPHIC)) != 0) {
+                int sequenceEnd = sequenceEnd(bytes, p, end);
+                if (sequenceEnd > p) {
+                    pp.value = p;
+                    return sequenceEnd;
+                }
+            }
+            p += length;
+        }
+        pp.value = end;
+        return -1;
+    }
+
+    /**
+     * Returns the end of the emoji sequence starting at <code>p</code>, or <code>p</code> if there is none
+     */
+    public int sequenceEnd(byte[]bytes, int p, int end) {
+        int code = codeAt(bytes, p, end);
+        if (code < 0) return p;
+        int cls = classes(code);
+        int next = p + encoding.length(bytes, p, end);
+
+        if ((cls & REGIONAL) != 0) {
+            int second = codeAt(bytes, next, end);
+            return second >= 0 && (classes(second) & REGIONAL) != 0 ? next + encoding.length(bytes, next, end) : p;
+        }
+
+        int q = elementEnd(bytes, p, end, code, cls);
+        boolean presentation = (cls & PRESENTATION) != 0 || q > next;
+        while (codeAt(bytes, q, end) == ZWJ) {
+            int zwjEnd = q + encoding.length(bytes, q, end);
+            int following = codeAt(bytes, zwjEnd, end);
+            if (following < 0 || (classes(following) & (EMOJI | PICTOGRAPHIC)) == 0) break;
+            q = elementEnd(bytes, zwjEnd, end, following, classes(following));
+            presentation = true;
+        }
+        return presentation ? q : p;
+    }
+
+    // base character at p with its keycap, presentation selector, modifier or tag sequence
+    private int elementEnd(byte[]bytes, int p, int end, int code, int cls) {
+        p += encoding.length(bytes, p, end);
+        int next = codeAt(bytes, p, end);
+
+        if ((cls & COMPONENT) != 0 && code < 0x80) { /* keycap base: 0-9 # * */
+            int q = next == VARIATION_EMOJI ? p + encoding.length(bytes, p, end) : p;
+            if (codeAt(bytes, q, end) == COMBINING_KEYCAP) return q + encoding.length(bytes, q, end);
+            return next == VARIATION_EMOJI ? q : p;
+        }
+
+        if (next == VARIATION_EMOJI) {
+            p += encoding.length(bytes, p, end);
+        } else if ((cls & MODIFIER_BASE) != 0 && next >= 0 && (classes(next) & MODIFIER) != 0) {
+            p += encoding.length(bytes, p, end);
+        } else if (next >= TAG_FIRST && next <= TAG_LAST) {
+            int q = p;
+            int tag;
+            while ((tag = codeAt(bytes, q, end)) >= TAG_FIRST && tag <= TAG_LAST) q += encoding.length(bytes, q, end);
+            if (tag == CANCEL_TAG) p = q + encoding.length(bytes, q, end);
+        }
+        return p;
+    }
+
+    private int codeAt(byte[]bytes, int p, int end) {
+        if (p >= end || encoding.length(bytes, p, end) < 0) return -1;
+        return encoding.mbcToCode(bytes, p, end);
+    }
+
+    static int classes(int code) {
+        return Classes.Values.get(code);
+    }
+
+    private static class Classes {
+        static final CodePointTrie Values = new CodePointTrie.Builder().
+            add(UnicodeCodeRange.EMOJI.getRange(), EMOJI).
+            add(UnicodeCodeRange.EMOJIPRESENTATION.getRange(), PRESENTATION).
+            add(UnicodeCodeRange.EMOJIMODIFIER.getRange(), MODIFIER).
+            add(UnicodeCodeRange.EMOJIMODIFIERBASE.getRange(), MODIFIER_BASE).
+            add(UnicodeCodeRange.EMOJICOMPONENT.getRange(), COMPONENT).
+            add(UnicodeCodeRange.EXTENDEDPICTOGRAPHIC.getRange(), PICTOGRAPHIC).
+            add(UnicodeCodeRange.REGIONALINDICATOR.getRange(), REGIONAL).
+            build();
+    }
+}
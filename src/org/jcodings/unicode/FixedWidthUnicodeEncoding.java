@@ -40,7 +40,7 @@ public abstract class FixedWidthUnicodeEncoding extends UnicodeEncoding {
         if (e < p) {
             return Macros.CONSTRUCT_MBCLEN_INVALID();
         } else if (e-p < 4) {
-            return Macros.CONSTRUCT_MBCLEN_NEEDMORE(4-e-p);
+            return Macros.CONSTRUCT_MBCLEN_NEEDMORE(4-(e-p));
         } else {
             int c = mbcToCode(bytes, p, e);
             if (!Macros.UNICODE_VALID_CODEPOINT_P(c)) {
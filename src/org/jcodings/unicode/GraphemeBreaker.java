@@ -0,0 +1,135 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+/**
+ * Extended grapheme cluster segmentation (UAX #29) over raw bytes of a Unicode encoding. The break property of
+ * every code point comes from a single {@link CodePointTrie} lookup, the rules run as a small state machine and
+ * iteration does not allocate.
+ */
+public final class GraphemeBreaker {
+    static final int OTHER          = 0;
+    static final int CR             = 1;
+    static final int LF             = 2;
+    static final int CONTROL        = 3;
+    static final int EXTEND         = 4;
+    static final int ZWJ            = 5;
+    static final int REGIONAL       = 6;
+    static final int PREPEND        = 7;
+    static final int SPACING_MARK   = 8;
+    static final int L              = 9;
+    static final int V              = 10;
+    static final int T              = 11;
+    static final int LV             = 12;
+    static final int LVT            = 13;
+    static final int PICTOGRAPHIC   = 14;
+
+    private final UnicodeEncoding encoding;
+
+    public GraphemeBreaker(UnicodeEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Returns the end of the grapheme cluster starting at <code>p</code>, which is <code>p</code> itself only when
+     * <code>p &gt;= end</code>. Ill formed bytes form clusters of one byte each.
+     */
+    public int next(byte[]bytes, int p, int end) {
+        if (p >= end) return p;
+        final UnicodeEncoding enc = encoding;
+
+        if (enc.isAsciiCompatible() && bytes[p] >= 0) { /* ASCII never joins with a following ASCII character except CR LF */
+            if (p + 1 == end) return end;
+            int c = bytes[p + 1];
+            if (c >= 0) return bytes[p] == '\r' && c == '\n' ? p + 2 : p + 1;
+        }
+
+        int length = enc.length(bytes, p, end);
+        if (length < 0) return p + 1;
+        int prev = breakClass(enc.mbcToCode(bytes, p, end));
+        p += length;
+        int regionals = prev == REGIONAL ? 1 : 0;
+        boolean pictographic = prev == PICTOGRAPHIC; /* ExtPict Extend* seen, for GB11 */
+        boolean pictographicZwj = false;
+
+        while (p < end) {
+            length = enc.length(bytes, p, end);
+            if (length < 0) break;
+            int cls = breakClass(enc.mbcToCode(bytes, p, end));
+            if (!joins(prev, cls, pictographicZwj, regionals)) break;
+
+            if (cls == ZWJ) {
+                pictographicZwj = pictographic;
+                pictographic = false;
+            } else if (cls != EXTEND) {
+                pictographic = cls == PICTOGRAPHIC;
+            }
+            regionals = cls == REGIONAL ? regionals + 1 : 0;
+            prev = cls;
+            p += length;
+        }
+        return p;
+    }
+
+    private static boolean joins(int prev, int cls, boolean pictographicZwj, int regionals) {
+        if (prev == CR && cls == LF) return true;                                           /* GB3 */
+        if (prev == CR || prev == LF || prev == CONTROL) return false;                      /* GB4 */
+        if (cls == CR || cls == LF || cls == CONTROL) return false;                         /* GB5 */
+        switch (prev) {
+        case L:                                                                             /* GB6 */
+            if (cls == L || cls == V || cls == LV || cls == LVT) return true;
+            break;
+        case LV: case V:                                                                    /* GB7 */
+            if (cls == V || cls == T) return true;
+            break;
+        case LVT: case T:                                                                   /* GB8 */
+            if (cls == T) return true;
+            break;
+        }
+        if (cls == EXTEND || cls == ZWJ || cls == SPACING_MARK) return true;                /* GB9, GB9a */
+        if (prev == PREPEND) return true;                                                   /* GB9b */
+        if (prev == ZWJ && cls == PICTOGRAPHIC) return pictographicZwj;                     /* GB11 */
+        if (prev == REGIONAL && cls == REGIONAL) return (regionals & 1) != 0;               /* GB12, GB13 */
+        return false;                                                                       /* GB999 */
+    }
+
+    static int breakClass(int code) {
+        return Classes.Values.get(code);
+    }
+
+    private static class Classes {
+        static final CodePointTrie Values = new CodePointTrie.Builder().
+            set(UnicodeCodeRange.EXTENDEDPICTOGRAPHIC.getRange(), PICTOGRAPHIC).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_CR.getRange(), CR).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_LF.getRange(), LF).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_CONTROL.getRange(), CONTROL).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_EXTEND.getRange(), EXTEND).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_ZWJ.getRange(), ZWJ).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_REGIONALINDICATOR.getRange(), REGIONAL).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_PREPEND.getRange(), PREPEND).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_SPACINGMARK.getRange(), SPACING_MARK).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_L.getRange(), L).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_V.getRange(), V).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_T.getRange(), T).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_LV.getRange(), LV).
+            set(UnicodeCodeRange.GRAPHEMECLUSTERBREAK_LVT.getRange(), LVT).
+            build();
+    }
+}
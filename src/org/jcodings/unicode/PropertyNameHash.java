@@ -0,0 +1,119 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jcodings.exception.ErrorMessages;
+
+/**
+ * Minimal perfect hash (hash and displace) over the normalized Unicode property names, mapping a name to its ctype.
+ * Callers feed the normalized characters one by one through {@link #step1} and {@link #step2}, so no scratch buffer
+ * is needed, and then verify the returned candidate against {@link UnicodeCodeRange#name} since unknown names map
+ * to an arbitrary slot.
+ */
+final class PropertyNameHash {
+    static final int SEED1 = 0x811c9dc5;
+    static final int SEED2 = 0;
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    static final PropertyNameHash Values = new PropertyNameHash(UnicodeCodeRange.CodeRangeTable);
+
+    private final int[]displacements;
+    private final short[]ctypes;
+
+    private PropertyNameHash(UnicodeCodeRange[]ranges) {
+        final int size = ranges.length;
+        final int[]hashes1 = new int[size], hashes2 = new int[size];
+        for (int i = 0; i < size; i++) {
+            int h1 = SEED1, h2 = SEED2;
+            for (byte c : ranges[i].name) {
+                h1 = step1(h1, c);
+                h2 = step2(h2, c);
+            }
+            hashes1[i] = h1;
+            hashes2[i] = h2;
+        }
+
+        displacements = new int[Math.max(1, size / 2)];
+        List<List<Integer>> buckets = new ArrayList<List<Integer>>(displacements.length);
+        for (int i = 0; i < displacements.length; i++) buckets.add(new ArrayList<Integer>());
+        for (int i = 0; i < size; i++) buckets.get(index(hashes1[i], displacements.length)).add(i);
+        List<Integer> order = new ArrayList<Integer>(displacements.length);
+        for (int i = 0; i < displacements.length; i++) order.add(i);
+        final List<List<Integer>> bucketList = buckets;
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return bucketList.get(b).size() - bucketList.get(a).size();
+            }
+        });
+
+        ctypes = new short[size];
+        Arrays.fill(ctypes, (short)-1);
+        int[]slots = new int[size];
+        for (int b : order) {
+            List<Integer> bucket = buckets.get(b);
+            if (bucket.isEmpty()) break;
+            int d = 0;
+            placement: for (;; d++) {
+                if (d == MAX_DISPLACEMENT) throw new InternalError(ErrorMessages.ERR_TYPE_BUG);
+                for (int i = 0; i < bucket.size(); i++) {
+                    int slot = slot(hashes2[bucket.get(i)], d, size);
+                    if (ctypes[slot] != -1) continue placement;
+                    for (int j = 0; j < i; j++) if (slots[j] == slot) continue placement;
+                    slots[i] = slot;
+                }
+                break;
+            }
+            displacements[b] = d;
+            for (int i = 0; i < bucket.size(); i++) ctypes[slots[i]] = (short)(int)bucket.get(i);
+        }
+    }
+
+    static int step1(int hash, int c) {
+        return (hash ^ c) * 0x01000193;
+    }
+
+    static int step2(int hash, int c) {
+        return hash * 31 + c;
+    }
+
+    /**
+     * Returns the only ctype whose name may hash to <code>h1</code>/<code>h2</code>
+     */
+    int get(int h1, int h2) {
+        return ctypes[slot(h2, displacements[index(h1, displacements.length)], ctypes.length)];
+    }
+
+    private static int slot(int h2, int displacement, int size) {
+        return index(h2 + displacement * 0x9e3779b9, size);
+    }
+
+    private static int index(int hash, int size) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return (hash & 0x7fffffff) % size;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits encoded text into runs of a single Unicode script. Common and Inherited characters (spaces, punctuation,
+ * digits, combining marks) join the run they appear in, leading ones join the first real script that follows, and
+ * a run made only of them reports {@link UnicodeCodeRange#COMMON}. Each code point costs one {@link CodePointTrie}
+ * lookup and iteration does not allocate, an iterator can be {@link #reset} for new input.
+ */
+public final class ScriptRunIterator {
+    private final UnicodeEncoding encoding;
+    private byte[]bytes;
+    private int p, end;
+    private int runStart, runEnd;
+    private UnicodeCodeRange runScript;
+
+    public ScriptRunIterator(UnicodeEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public ScriptRunIterator reset(byte[]bytes, int p, int end) {
+        this.bytes = bytes;
+        this.p = p;
+        this.end = end;
+        runStart = runEnd = p;
+        runScript = null;
+        return this;
+    }
+
+    /**
+     * Advances to the next run, returns false at the end of the input
+     */
+    public boolean next() {
+        if (p >= end) return false;
+        final boolean asciiCompatible = encoding.isAsciiCompatible();
+        final int common = Scripts.COMMON_ID, inherited = Scripts.INHERITED_ID;
+        int script = common;
+        int q = p;
+
+        while (q < end) {
+            int length, id;
+            if (asciiCompatible && bytes[q] >= 0) {
+                length = 1;
+                id = scriptId(bytes[q]);
+            } else {
+                length = encoding.length(bytes, q, end);
+                if (length < 0) {
+                    length = 1;
+                    id = Scripts.UNKNOWN_ID;
+                } else {
+                    id = scriptId(encoding.mbcToCode(bytes, q, end));
+                }
+            }
+            if (id != common && id != inherited) {
+                if (script == common) {
+                    script = id;
+                } else if (id != script) {
+                    break;
+                }
+            }
+            q += length;
+        }
+
+        runStart = p;
+        runEnd = p = q;
+        runScript = Scripts.Values[script];
+        return true;
+    }
+
+    public int start() {
+        return runStart;
+    }
+
+    public int end() {
+        return runEnd;
+    }
+
+    public UnicodeCodeRange script() {
+        return runScript;
+    }
+
+    /**
+     * Returns the script of a code point, {@link UnicodeCodeRange#UNKNOWN} for unassigned ones
+     */
+    public static UnicodeCodeRange scriptOf(int code) {
+        return Scripts.Values[scriptId(code)];
+    }
+
+    static int scriptId(int code) {
+        return Scripts.Trie.get(code);
+    }
+
+    private static class Scripts {
+        // script property constants run from COMMON up to the first binary property, aliases share their table
+        static final UnicodeCodeRange[]Values = scripts();
+        static final CodePointTrie Trie = trie();
+        static final int UNKNOWN_ID = 0;
+        static final int COMMON_ID = id(UnicodeCodeRange.COMMON);
+        static final int INHERITED_ID = id(UnicodeCodeRange.INHERITED);
+
+        private static UnicodeCodeRange[] scripts() {
+            List<UnicodeCodeRange> scripts = new ArrayList<UnicodeCodeRange>();
+            scripts.add(UnicodeCodeRange.UNKNOWN);
+            for (int i = UnicodeCodeRange.COMMON.ordinal(); i < UnicodeCodeRange.WHITESPACE.ordinal(); i++) {
+                UnicodeCodeRange range = UnicodeCodeRange.CodeRangeTable[i];
+                if (!Arrays.equals(range.getRange(), UnicodeCodeRange.CodeRangeTable[i - 1].getRange())) scripts.add(range);
+            }
+            return scripts.toArray(new UnicodeCodeRange[scripts.size()]);
+        }
+
+        private static CodePointTrie trie() {
+            CodePointTrie.Builder builder = new CodePointTrie.Builder();
+            for (int i = 1; i < Values.length; i++) builder.set(Values[i].getRange(), i);
+            return builder.build();
+        }
+
+        private static int id(UnicodeCodeRange script) {
+            for (int i = 0; i < Values.length; i++) if (Values[i] == script) return i;
+            throw new InternalError(script.toString());
+        }
+    }
+}
@@ -19,23 +19,21 @@
  */
 package org.jcodings.unicode;
 
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jcodings.ApplyAllCaseFoldFunction;
-import org.jcodings.CaseFoldCodeItem;
-import org.jcodings.CodeRange;
+import org.jcodings.CaseFoldCodeBuffer;
+import org.jcodings.CaseFoldClosure;
 import org.jcodings.Config;
 import org.jcodings.IntHolder;
 import org.jcodings.MultiByteEncoding;
+import org.jcodings.ascii.AsciiTables;
 import org.jcodings.constants.CharacterType;
 import org.jcodings.exception.CharacterPropertyException;
 import org.jcodings.exception.EncodingError;
 import org.jcodings.exception.ErrorMessages;
 import org.jcodings.util.ArrayReader;
-import org.jcodings.util.CaseInsensitiveBytesHash;
-import org.jcodings.util.IntArrayHash;
-import org.jcodings.util.IntHash;
+import org.jcodings.util.IntMap;
 
 public abstract class UnicodeEncoding extends MultiByteEncoding {
     private static final int PROPERTY_NAME_MAX_SIZE = UnicodeCodeRange.MAX_WORD_LENGTH + 1;
@@ -70,12 +68,79 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
 
         if (ctype > UnicodeCodeRange.CodeRangeTable.length) throw new InternalError(ErrorMessages.ERR_TYPE_BUG);
 
-        return CodeRange.isInCodeRange(UnicodeCodeRange.CodeRangeTable[ctype].getRange(), code);
+        return UnicodeCodeRange.CodeRangeTable[ctype].contains(code);
 
     }
 
     public static boolean isInCodeRange(UnicodeCodeRange range, int code) {
-        return CodeRange.isInCodeRange(range.getRange(), code);
+        return range.contains(code);
+    }
+
+    /**
+     * Character type checks go through a byte level matcher compiled once per character type and shared by all
+     * Unicode encodings
+     */
+    @Override
+    public int spanCType(byte[]bytes, int p, int end, int ctype) {
+        final Utf8Matcher matcher = ctypeMatcher(ctype);
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length <= 0 || p + length > end || !matcher.contains(mbcToCode(bytes, p, p + length))) return p;
+            p += length;
+        }
+        return p;
+    }
+
+    @Override
+    public int findCType(byte[]bytes, int p, int end, int ctype) {
+        final Utf8Matcher matcher = ctypeMatcher(ctype);
+        while (p < end) {
+            int length = length(bytes, p, end);
+            if (length <= 0 || p + length > end) {
+                p += minLength();
+                continue;
+            }
+            if (matcher.contains(mbcToCode(bytes, p, p + length))) return p;
+            p += length;
+        }
+        return end;
+    }
+
+    private static final AtomicReferenceArray<Utf8Matcher> CTypeMatchers = new AtomicReferenceArray<Utf8Matcher>(UnicodeCodeRange.CodeRangeTable.length);
+
+    /**
+     * Matcher agreeing with {@link #isCodeCType}: standard character types take Latin-1 from the ctype table
+     */
+    protected static Utf8Matcher ctypeMatcher(int ctype) {
+        if (ctype >= UnicodeCodeRange.CodeRangeTable.length) throw new InternalError(ErrorMessages.ERR_TYPE_BUG);
+        Utf8Matcher matcher = CTypeMatchers.get(ctype);
+        if (matcher == null) {
+            int[]range = UnicodeCodeRange.CodeRangeTable[ctype].getRange();
+            if (!Config.USE_UNICODE_PROPERTIES || ctype <= CharacterType.MAX_STD_CTYPE) {
+                int[]merged = new int[1 + 2 * (range[0] + 128)];
+                int n = 0;
+                for (int code = 0; code < 256; code++) {
+                    if ((UNICODE_ISO_8859_1_CTypeTable[code] & (1 << ctype)) == 0) continue;
+                    if (n > 0 && merged[2 * n] == code - 1) {
+                        merged[2 * n] = code;
+                    } else {
+                        merged[2 * n + 1] = merged[2 * n + 2] = code;
+                        n++;
+                    }
+                }
+                for (int i = 0; i < range[0]; i++) {
+                    if (range[2 * i + 2] < 256) continue;
+                    merged[2 * n + 1] = Math.max(range[2 * i + 1], 256);
+                    merged[2 * n + 2] = range[2 * i + 2];
+                    n++;
+                }
+                merged[0] = n;
+                range = merged;
+            }
+            CTypeMatchers.compareAndSet(ctype, null, Utf8Matcher.compile(range));
+            matcher = CTypeMatchers.get(ctype);
+        }
+        return matcher;
     }
 
     // onigenc_unicode_ctype_code_range
@@ -88,22 +153,35 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
     // onigenc_unicode_property_name_to_ctype
     @Override
     public int propertyNameToCType(byte[]name, int p, int end) {
-        byte[]buf = new byte[PROPERTY_NAME_MAX_SIZE];
+        int h1 = PropertyNameHash.SEED1, h2 = PropertyNameHash.SEED2;
         int len = 0;
 
         for(int p_ = p; p_ < end; p_+= length(name, p_, end)) {
             int code = mbcToCode(name, p_, end);
             if (code == ' ' || code == '-' || code == '_') continue;
-            if (code >= 0x80) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
-            buf[len++] = (byte)code;
-            if (len >= PROPERTY_NAME_MAX_SIZE) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
+            if (code < 0 || code >= 0x80) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
+            code = AsciiTables.ToLowerCaseTable[code];
+            h1 = PropertyNameHash.step1(h1, code);
+            h2 = PropertyNameHash.step2(h2, code);
+            if (++len >= PROPERTY_NAME_MAX_SIZE) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
         }
 
-        Integer ctype = CTypeName.Values.get(buf, 0, len);
-        if (ctype == null) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
+        int ctype = PropertyNameHash.Values.get(h1, h2);
+        if (!propertyNameEquals(name, p, end, UnicodeCodeRange.CodeRangeTable[ctype].name)) throw new CharacterPropertyException(EncodingError.ERR_INVALID_CHAR_PROPERTY_NAME, name, p, end);
         return ctype;
     }
 
+    // second, verifying pass over an already validated property name
+    private boolean propertyNameEquals(byte[]name, int p, int end, byte[]expected) {
+        int i = 0;
+        for (; p < end; p += length(name, p, end)) {
+            int code = mbcToCode(name, p, end);
+            if (code == ' ' || code == '-' || code == '_') continue;
+            if (i == expected.length || code < 0 || code >= 0x80 || AsciiTables.ToLowerCaseTable[code] != expected[i++]) return false;
+        }
+        return i == expected.length;
+    }
+
     // onigenc_unicode_mbc_case_fold
     @Override
     public int mbcCaseFold(int flag, byte[]bytes, IntHolder pp, int end, byte[]fold) {
@@ -124,14 +202,16 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
             }
         }
 
-        CodeList to = CaseFold.Values.get(code);
-        if (to != null) {
-            if (to.codes.length == 1) {
-                return codeToMbc(to.codes[0], fold, foldP);
+        CaseFoldTable caseFold = CaseFold.Values;
+        int to = caseFold.get(code);
+        if (to >= 0) {
+            int length = caseFold.length(to);
+            if (length == 1) {
+                return codeToMbc(caseFold.code(to, 0), fold, foldP);
             } else {
                 int rlen = 0;
-                for (int i=0; i<to.codes.length; i++) {
-                    len = codeToMbc(to.codes[i], fold, foldP);
+                for (int i=0; i<length; i++) {
+                    len = codeToMbc(caseFold.code(to, i), fold, foldP);
                     foldP += len;
                     rlen += len;
                 }
@@ -145,29 +225,154 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
         return len;
     }
 
-    // onigenc_unicode_apply_all_case_fold
+    /**
+     * Compares folded code points straight from the case fold table, without any scratch buffers
+     */
+    @Override
+    public int caseFoldCompare(int flag, byte[]a, int ap, int aend, byte[]b, int bp, int bend) {
+        final CaseFoldTable caseFold = CaseFold.Values;
+        final boolean ascii = isAsciiCompatible() && !isTurkishFold(flag);
+        int aRec = 0, aIdx = 0, aLen = 0, bRec = 0, bIdx = 0, bLen = 0;
+
+        while (true) {
+            int ca, cb;
+            if (aIdx < aLen) {
+                ca = caseFold.code(aRec, aIdx++);
+            } else if (ap >= aend) {
+                ca = -1;
+            } else if (ascii && a[ap] >= 0) {
+                ca = AsciiTables.ToLowerCaseTable[a[ap++]];
+            } else {
+                int length = length(a, ap, aend);
+                ca = caseFoldUnit(flag, a, ap, aend, length);
+                ap += length < 0 ? 1 : length;
+                if (ca < 0) {
+                    aRec = ~ca;
+                    aLen = caseFold.length(aRec);
+                    aIdx = 1;
+                    ca = caseFold.code(aRec, 0);
+                }
+            }
+
+            if (bIdx < bLen) {
+                cb = caseFold.code(bRec, bIdx++);
+            } else if (bp >= bend) {
+                cb = -1;
+            } else if (ascii && b[bp] >= 0) {
+                cb = AsciiTables.ToLowerCaseTable[b[bp++]];
+            } else {
+                int length = length(b, bp, bend);
+                cb = caseFoldUnit(flag, b, bp, bend, length);
+                bp += length < 0 ? 1 : length;
+                if (cb < 0) {
+                    bRec = ~cb;
+                    bLen = caseFold.length(bRec);
+                    bIdx = 1;
+                    cb = caseFold.code(bRec, 0);
+                }
+            }
+
+            if (ca != cb) return ca < cb ? -1 : 1;
+            if (ca == -1) return 0;
+        }
+    }
+
+    @Override
+    public int caseFoldHash(int flag, byte[]bytes, int p, int end) {
+        final CaseFoldTable caseFold = CaseFold.Values;
+        final boolean ascii = isAsciiCompatible() && !isTurkishFold(flag);
+        int hash = 0;
+
+        while (p < end) {
+            if (ascii && bytes[p] >= 0) {
+                hash = hash * 31 + AsciiTables.ToLowerCaseTable[bytes[p++]];
+            } else {
+                int length = length(bytes, p, end);
+                int unit = caseFoldUnit(flag, bytes, p, end, length);
+                p += length < 0 ? 1 : length;
+                if (unit < 0) {
+                    for (int i = 0; i < caseFold.length(~unit); i++) hash = hash * 31 + caseFold.code(~unit, i);
+                } else {
+                    hash = hash * 31 + unit;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static boolean isTurkishFold(int flag) {
+        return Config.USE_UNICODE_CASE_FOLD_TURKISH_AZERI && (flag & Config.CASE_FOLD_TURKISH_AZERI) != 0;
+    }
+
+    // folds the character at p the way mbcCaseFold does, yielding its folded code point or ~record of a multi code point fold
+    private int caseFoldUnit(int flag, byte[]bytes, int p, int end, int length) {
+        if (length < 0) return INVALID_BYTE_UNIT | (bytes[p] & 0xff); /* ill formed bytes only match themselves */
+        int code = mbcToCode(bytes, p, end);
+        if (isTurkishFold(flag)) {
+            if (code == 'I') return DOTLESS_i;
+            if (code == I_WITH_DOT_ABOVE) return 'i';
+        }
+        CaseFoldTable caseFold = CaseFold.Values;
+        int to = caseFold.get(code);
+        if (to < 0) return code;
+        return caseFold.length(to) == 1 ? caseFold.code(to, 0) : ~to;
+    }
+
+    private static final int INVALID_BYTE_UNIT = 0x200000;
+
     @Override
     public void applyAllCaseFold(int flag, ApplyAllCaseFoldFunction fun, Object arg) {
+        caseFoldClosure(flag).apply(fun, arg);
+    }
+
+    /**
+     * The closure only depends on the shared Unicode tables, so it is built once for all Unicode encodings
+     */
+    @Override
+    public CaseFoldClosure caseFoldClosure(int flag) {
+        return Closures.get(flag);
+    }
+
+    private static class Closures {
+        private static final int MASK = Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR | (Config.USE_UNICODE_CASE_FOLD_TURKISH_AZERI ? Config.CASE_FOLD_TURKISH_AZERI : 0);
+        private static final IntMap<CaseFoldClosure> Values = new IntMap<CaseFoldClosure>(4);
+
+        static synchronized CaseFoldClosure get(int flag) {
+            flag &= MASK;
+            CaseFoldClosure closure = Values.get(flag);
+            if (closure == null) {
+                CaseFoldClosure.Builder builder = new CaseFoldClosure.Builder();
+                applyAllCaseFoldTables(flag, builder, null);
+                Values.put(flag, closure = builder.build());
+            }
+            return closure;
+        }
+    }
+
+    // onigenc_unicode_apply_all_case_fold
+    private static void applyAllCaseFoldTables(int flag, ApplyAllCaseFoldFunction fun, Object arg) {
         /* if (CaseFoldInited == 0) init_case_fold_table(); */
 
         int[]code = new int[]{0};
-        for (int i=0; i<CaseUnfold11.From.length; i++) {
-            int from = CaseUnfold11.From[i];
-            CodeList to = CaseUnfold11.To[i];
+        CaseFoldTable unfold = CaseUnfold11.Values;
+        for (int i=0; i<unfold.end(0); i++) {
+            int from = unfold.keys[i];
+            int to = unfold.records[i];
+            int length = unfold.length(to);
 
-            for (int j=0; j<to.codes.length; j++) {
+            for (int j=0; j<length; j++) {
                 code[0] = from;
-                fun.apply(to.codes[j], code, 1, arg);
+                fun.apply(unfold.code(to, j), code, 1, arg);
 
-                code[0] = to.codes[j];
+                code[0] = unfold.code(to, j);
                 fun.apply(from, code, 1, arg);
 
                 for (int k=0; k<j; k++) {
-                    code[0] = to.codes[k];
-                    fun.apply(to.codes[j], code, 1, arg);
+                    code[0] = unfold.code(to, k);
+                    fun.apply(unfold.code(to, j), code, 1, arg);
 
-                    code[0] = to.codes[j];
-                    fun.apply(to.codes[k], code, 1, arg);
+                    code[0] = unfold.code(to, j);
+                    fun.apply(unfold.code(to, k), code, 1, arg);
                 }
 
             }
@@ -183,70 +388,76 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
             code[0] = 'i';
             fun.apply(I_WITH_DOT_ABOVE, code, 1, arg);
         } else {
-            for (int i=0; i<CaseUnfold11.Locale_From.length; i++) {
-                int from = CaseUnfold11.Locale_From[i];
-                CodeList to = CaseUnfold11.Locale_To[i];
+            for (int i=unfold.end(0); i<unfold.end(1); i++) {
+                int from = unfold.keys[i];
+                int to = unfold.records[i];
+                int length = unfold.length(to);
 
-                for (int j=0; j<to.codes.length; j++) {
+                for (int j=0; j<length; j++) {
                     code[0] = from;
-                    fun.apply(to.codes[j], code, 1, arg);
+                    fun.apply(unfold.code(to, j), code, 1, arg);
 
-                    code[0] = to.codes[j];
+                    code[0] = unfold.code(to, j);
                     fun.apply(from, code, 1, arg);
 
                     for (int k = 0; k<j; k++) {
-                        code[0] = to.codes[k];
-                        fun.apply(to.codes[j], code, 1, arg);
+                        code[0] = unfold.code(to, k);
+                        fun.apply(unfold.code(to, j), code, 1, arg);
 
-                        code[0] = to.codes[j];
-                        fun.apply(to.codes[k], code, 1, arg);
+                        code[0] = unfold.code(to, j);
+                        fun.apply(unfold.code(to, k), code, 1, arg);
                     }
                 }
             }
         } // USE_UNICODE_CASE_FOLD_TURKISH_AZERI
 
         if ((flag & Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR) != 0) {
-            for (int i=0; i<CaseUnfold12.From.length; i++) {
+            CaseFoldTable unfold2 = CaseUnfold12.Values;
+            for (int i=0; i<unfold2.end(0); i++) {
                 int[]from = CaseUnfold12.From[i];
-                CodeList to = CaseUnfold12.To[i];
-                for (int j=0; j<to.codes.length; j++) {
-                    fun.apply(to.codes[j], from, 2, arg);
+                int to = unfold2.records[i];
+                int length = unfold2.length(to);
+                for (int j=0; j<length; j++) {
+                    fun.apply(unfold2.code(to, j), from, 2, arg);
 
-                    for (int k=0; k<to.codes.length; k++) {
+                    for (int k=0; k<length; k++) {
                         if (k == j) continue;
-                        code[0] = to.codes[k];
-                        fun.apply(to.codes[j], code, 1, arg);
+                        code[0] = unfold2.code(to, k);
+                        fun.apply(unfold2.code(to, j), code, 1, arg);
                     }
                 }
             }
 
             if (!Config.USE_UNICODE_CASE_FOLD_TURKISH_AZERI || (flag & Config.CASE_FOLD_TURKISH_AZERI) == 0) {
-                for (int i=0; i<CaseUnfold12.Locale_From.length; i++) {
-                    int[]from = CaseUnfold12.Locale_From[i];
-                    CodeList to = CaseUnfold12.Locale_To[i];
-                    for (int j=0; j<to.codes.length; j++) {
-                        fun.apply(to.codes[j], from, 2, arg);
-
-                        for (int k=0; k<to.codes.length; k++) {
+                for (int i=unfold2.end(0); i<unfold2.end(1); i++) {
+                    int[]from = CaseUnfold12.From[i];
+                    int to = unfold2.records[i];
+                    int length = unfold2.length(to);
+                    for (int j=0; j<length; j++) {
+                        fun.apply(unfold2.code(to, j), from, 2, arg);
+
+                        for (int k=0; k<length; k++) {
                             if (k == j) continue;
-                            code[0] = to.codes[k];
-                            fun.apply(to.codes[j], code, 1, arg);
+                            code[0] = unfold2.code(to, k);
+                            fun.apply(unfold2.code(to, j), code, 1, arg);
                         }
                     }
                 }
             } // !USE_UNICODE_CASE_FOLD_TURKISH_AZERI
 
-            for (int i=0; i<CaseUnfold13.From.length; i++) {
+            CaseFoldTable unfold3 = CaseUnfold13.Values;
+            for (int i=0; i<unfold3.size(); i++) {
                 int[]from = CaseUnfold13.From[i];
-                CodeList to = CaseUnfold13.To[i];
+                int to = unfold3.records[i];
+                int length = unfold3.length(to);
 
-                for (int j=0; j<to.codes.length; j++) {
-                    fun.apply(to.codes[j], from, 3, arg); //// ????
+                for (int j=0; j<length; j++) {
+                    fun.apply(unfold3.code(to, j), from, 3, arg); //// ????
 
-                    for (int k=0; k<to.codes.length; k++) {
+                    for (int k=0; k<length; k++) {
                         if (k == j) continue;
-                        code[0] = to.codes[k];
-                        fun.apply(to.codes[j], code, 1, arg);
+                        code[0] = unfold3.code(to, k);
+                        fun.apply(unfold3.code(to, j), code, 1, arg);
                     }
                 }
             }
@@ -256,96 +467,96 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
 
     // onigenc_unicode_get_case_fold_codes_by_str
     @Override
-    public CaseFoldCodeItem[]caseFoldCodesByString(int flag, byte[]bytes, int p, int end) {
+    public int caseFoldCodesByString(int flag, byte[]bytes, int p, int end, CaseFoldCodeBuffer buffer) {
+        buffer.clear();
         int code = mbcToCode(bytes, p, end);
         int len = length(bytes, p, end);
 
         if (Config.USE_UNICODE_CASE_FOLD_TURKISH_AZERI) {
             if ((flag & Config.CASE_FOLD_TURKISH_AZERI) != 0) {
                 if (code == 'I') {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(len, DOTLESS_i)};
+                    buffer.add(len, DOTLESS_i);
+                    return 1;
                 } else if(code == I_WITH_DOT_ABOVE) {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(len, 'i')};
+                    buffer.add(len, 'i');
+                    return 1;
                 } else if(code == DOTLESS_i) {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(len, 'I')};
+                    buffer.add(len, 'I');
+                    return 1;
                 } else if(code == 'i') {
-                    return new CaseFoldCodeItem[]{CaseFoldCodeItem.create(len, I_WITH_DOT_ABOVE)};
+                    buffer.add(len, I_WITH_DOT_ABOVE);
+                    return 1;
                 }
             }
         } // USE_UNICODE_CASE_FOLD_TURKISH_AZERI
 
-        int n = 0;
         int fn = 0;
-        CodeList to = CaseFold.Values.get(code);
-        CaseFoldCodeItem[]items = null;
-        if (to != null) {
-            items = new CaseFoldCodeItem[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM];
+        CaseFoldTable caseFold = CaseFold.Values;
+        CaseFoldTable unfold = CaseUnfold11.Values;
+        int to = caseFold.get(code);
+        if (to >= 0) {
+            int toLength = caseFold.length(to);
 
-            if (to.codes.length == 1) {
+            if (toLength == 1) {
                 int origCode = code;
 
-                items[0] = CaseFoldCodeItem.create(len, to.codes[0]);
-                n++;
+                buffer.add(len, caseFold.code(to, 0));
 
-                code = to.codes[0];
-                to = CaseUnfold11.Values.get(code);
+                code = caseFold.code(to, 0);
+                int z = unfold.get(code);
 
-                if (to != null) {
-                    for (int i=0; i<to.codes.length; i++) {
-                        if (to.codes[i] != origCode) {
-                            items[n] = CaseFoldCodeItem.create(len, to.codes[i]);
-                            n++;
+                if (z >= 0) {
+                    for (int i=0; i<unfold.length(z); i++) {
+                        if (unfold.code(z, i) != origCode) {
+                            buffer.add(len, unfold.code(z, i));
                         }
                     }
                 }
             } else if ((flag & Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR) != 0) {
-                int[][]cs = new int[3][4];
-                int[]ncs = new int[3];
-
-                for (fn=0; fn<to.codes.length; fn++) {
-                    cs[fn][0] = to.codes[fn];
-                    CodeList z3 = CaseUnfold11.Values.get(cs[fn][0]);
-                    if (z3 != null) {
-                        for (int i=0; i<z3.codes.length; i++) {
-                            cs[fn][i+1] = z3.codes[i];
+                int[]ncs = buffer.alternativeCounts();
+
+                for (fn=0; fn<toLength; fn++) {
+                    int[]cs = buffer.alternatives(fn);
+                    cs[0] = caseFold.code(to, fn);
+                    int z3 = unfold.get(cs[0]);
+                    if (z3 >= 0) {
+                        for (int i=0; i<unfold.length(z3); i++) {
+                            cs[i+1] = unfold.code(z3, i);
                         }
-                        ncs[fn] = z3.codes.length + 1;
+                        ncs[fn] = unfold.length(z3) + 1;
                     } else {
                         ncs[fn] = 1;
                     }
                 }
 
+                int[]cs0 = buffer.alternatives(0), cs1 = buffer.alternatives(1), cs2 = buffer.alternatives(2);
                 if (fn == 2) {
                     for (int i=0; i<ncs[0]; i++) {
                         for (int j=0; j<ncs[1]; j++) {
-                            items[n] = CaseFoldCodeItem.create(len, cs[0][i], cs[1][j]);
-                            n++;
+                            buffer.add(len, cs0[i], cs1[j]);
                         }
                     }
 
-                    CodeList z2 = CaseUnfold12.Values.get(to.codes);
-                    if (z2 != null) {
-                        for (int i=0; i<z2.codes.length; i++) {
-                            if (z2.codes[i] == code) continue;
-                            items[n] = CaseFoldCodeItem.create(len, z2.codes[i]);
-                            n++;
+                    int z2 = CaseUnfold12.Values.get2(caseFold.code(to, 0), caseFold.code(to, 1));
+                    if (z2 >= 0) {
+                        for (int i=0; i<CaseUnfold12.Values.length(z2); i++) {
+                            if (CaseUnfold12.Values.code(z2, i) == code) continue;
+                            buffer.add(len, CaseUnfold12.Values.code(z2, i));
                         }
                     }
                 } else {
                     for (int i=0; i<ncs[0]; i++) {
                         for (int j=0; j<ncs[1]; j++) {
                             for (int k=0; k<ncs[2]; k++) {
-                                items[n] = CaseFoldCodeItem.create(len, cs[0][i], cs[1][j], cs[2][k]);
-                                n++;
+                                buffer.add(len, cs0[i], cs1[j], cs2[k]);
                             }
                         }
                     }
-                    CodeList z2 = CaseUnfold13.Values.get(to.codes);
-                    if (z2 != null) {
-                        for (int i=0; i<z2.codes.length; i++) {
-                            if (z2.codes[i] == code) continue;
-                            items[n] = CaseFoldCodeItem.create(len, z2.codes[i]);
-                            n++;
+                    int z2 = CaseUnfold13.Values.get3(caseFold.code(to, 0), caseFold.code(to, 1), caseFold.code(to, 2));
+                    if (z2 >= 0) {
+                        for (int i=0; i<CaseUnfold13.Values.length(z2); i++) {
+                            if (CaseUnfold13.Values.code(z2, i) == code) continue;
+                            buffer.add(len, CaseUnfold13.Values.code(z2, i));
                         }
                     }
                 }
@@ -353,38 +564,33 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                 flag = 0; /* DISABLE_CASE_FOLD_MULTI_CHAR(flag); */
             }
         } else {
-            to = CaseUnfold11.Values.get(code);
-            if (to != null) {
-                items = new CaseFoldCodeItem[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM];
-                for (int i=0; i<to.codes.length; i++) {
-                    items[n] = CaseFoldCodeItem.create(len, to.codes[i]);
-                    n++;
+            int z = unfold.get(code);
+            if (z >= 0) {
+                for (int i=0; i<unfold.length(z); i++) {
+                    buffer.add(len, unfold.code(z, i));
                 }
             }
         }
 
         if ((flag & Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR) != 0) {
-            if (items == null) items = new CaseFoldCodeItem[Config.ENC_GET_CASE_FOLD_CODES_MAX_NUM];
-
             p += len;
             if (p < end) {
                 final int codes0 = code;
                 final int codes1;
                 code = mbcToCode(bytes, p, end);
-                to = CaseFold.Values.get(code);
-                if (to != null && to.codes.length == 1) {
-                    codes1 = to.codes[0];
+                to = caseFold.get(code);
+                if (to >= 0 && caseFold.length(to) == 1) {
+                    codes1 = caseFold.code(to, 0);
                 } else {
                     codes1 = code;
                 }
 
                 int clen = length(bytes, p, end);
                 len += clen;
-                CodeList z2 = CaseUnfold12.Values.get(codes0, codes1);
-                if (z2 != null) {
-                    for (int i=0; i<z2.codes.length; i++) {
-                        items[n] = CaseFoldCodeItem.create(len, z2.codes[i]);
-                        n++;
+                int z2 = CaseUnfold12.Values.get2(codes0, codes1);
+                if (z2 >= 0) {
+                    for (int i=0; i<CaseUnfold12.Values.length(z2); i++) {
+                        buffer.add(len, CaseUnfold12.Values.code(z2, i));
                     }
                 }
 
@@ -392,33 +598,25 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                 if (p < end) {
                     final int codes2;
                     code = mbcToCode(bytes, p, end);
-                    to = CaseFold.Values.get(code);
-                    if (to != null && to.codes.length == 1) {
-                        codes2 = to.codes[0];
+                    to = caseFold.get(code);
+                    if (to >= 0 && caseFold.length(to) == 1) {
+                        codes2 = caseFold.code(to, 0);
                     } else {
                         codes2 = code;
                     }
                     clen = length(bytes, p, end);
                     len += clen;
-                    z2 = CaseUnfold13.Values.get(codes0, codes1, codes2);
-                    if (z2 != null) {
-                        for (int i=0; i<z2.codes.length; i++) {
-                            items[n] = CaseFoldCodeItem.create(len, z2.codes[i]);
-                            n++;
+                    z2 = CaseUnfold13.Values.get3(codes0, codes1, codes2);
+                    if (z2 >= 0) {
+                        for (int i=0; i<CaseUnfold13.Values.length(z2); i++) {
+                            buffer.add(len, CaseUnfold13.Values.code(z2, i));
                         }
                     }
                 }
             }
         }
 
-        if (items == null || n == 0) return CaseFoldCodeItem.EMPTY_FOLD_CODES;
-        if (n < items.length) {
-            CaseFoldCodeItem [] tmp = new CaseFoldCodeItem[n];
-            System.arraycopy(items, 0, tmp, 0, n);
-            return tmp;
-        } else {
-            return items;
-        }
+        return buffer.size();
     }
 
     static final int CASE_MAPPING_SLACK = 12;
@@ -429,12 +627,39 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
         int toStart = toP;
         toEnd -= CASE_MAPPING_SLACK;
         flags |= (flags & (Config.CASE_UPCASE | Config.CASE_DOWNCASE)) << Config.CASE_SPECIAL_OFFSET;
-
+        final boolean asciiCompatible = isAsciiCompatible();
 
         while (pp.value < end && toP <= toEnd) {
+            if (asciiCompatible && (flags & Config.CASE_TITLECASE) == 0 && bytes[pp.value] >= 0) { /* ASCII run, unchanged spans are copied in bulk */
+                int p = pp.value;
+                int start = p;
+                int limit = Math.min(end, p + toEnd - toP + 1);
+                while (p < limit) {
+                    int c = bytes[p];
+                    if (c < 0) break;
+                    if (c >= 'a' && c <= 'z' ? (flags & Config.CASE_UPCASE) != 0 : c >= 'A' && c <= 'Z' && (flags & (Config.CASE_DOWNCASE | Config.CASE_FOLD)) != 0) {
+                        if ((flags & Config.CASE_FOLD_TURKISH_AZERI) != 0 && (c | 0x20) == 'i') break;
+                        System.arraycopy(bytes, start, to, toP, p - start);
+                        toP += p - start;
+                        to[toP++] = (byte)(c ^ 0x20);
+                        flags |= Config.CASE_MODIFIED;
+                        start = ++p;
+                    } else {
+                        p++;
+                    }
+                }
+                System.arraycopy(bytes, start, to, toP, p - start);
+                toP += p - start;
+                if (p > pp.value) {
+                    pp.value = p;
+                    continue;
+                }
+            }
+
             int length = length(bytes, pp.value, end);
             if (length < 0) return length;
-            int code = mbcToCode(bytes, pp.value, end);
+            final int original = mbcToCode(bytes, pp.value, end);
+            int code = original;
             pp.value += length;
 
             if (code <= 'z') {
@@ -450,7 +675,7 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                     }
                 }
             } else if ((flags & Config.CASE_ASCII_ONLY) == 0 && code >= 0x00B5) {
-                CodeList folded;
+                int folded;
                 if (code == I_WITH_DOT_ABOVE) {
                     if ((flags & (Config.CASE_DOWNCASE | Config.CASE_FOLD)) != 0) {
                         flags |= Config.CASE_MODIFIED;
@@ -465,34 +690,36 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                         flags |= Config.CASE_MODIFIED;
                         code = 'I';
                     }
-                } else if ((folded = CaseFold.Values.get(code)) != null) { /* data about character found in CaseFold_Table */
+                } else if ((folded = CaseFold.Values.get(code)) >= 0) { /* data about character found in CaseFold_Table */
+                    final CaseFoldTable caseFold = CaseFold.Values;
+                    final int foldedFlags = caseFold.flags(folded);
                     if ((flags & Config.CASE_TITLECASE) != 0 && code >= 0x1C90 && code <= 0x1CBF) { /* Georgian MTAVRULI */
                         flags |= Config.CASE_MODIFIED;
                         code += 0x10D0 - 0x1C90;
-                    } else if ((flags & Config.CASE_TITLECASE) != 0 && (folded.flags & Config.CASE_IS_TITLECASE) != 0) { /* Titlecase needed, but already Titlecase */
+                    } else if ((flags & Config.CASE_TITLECASE) != 0 && (foldedFlags & Config.CASE_IS_TITLECASE) != 0) { /* Titlecase needed, but already Titlecase */
                         /* already Titlecase, no changes needed */
-                    } else if ((flags & folded.flags) != 0) {
+                    } else if ((flags & foldedFlags) != 0) {
                         final int[]codes;
                         final int start;
                         final int finish;
                         boolean specialCopy = false;
                         flags |= Config.CASE_MODIFIED;
-                        if ((flags & folded.flags & Config.CASE_SPECIALS) != 0) {
+                        if ((flags & foldedFlags & Config.CASE_SPECIALS) != 0) {
                             codes = CaseMappingSpecials.Values;
-                            int specialStart = (folded.flags & Config.SpecialIndexMask) >>> Config.SpecialIndexShift;
-                            if ((folded.flags & Config.CASE_IS_TITLECASE) != 0) {
+                            int specialStart = (foldedFlags & Config.SpecialIndexMask) >>> Config.SpecialIndexShift;
+                            if ((foldedFlags & Config.CASE_IS_TITLECASE) != 0) {
                                 if ((flags & (Config.CASE_UPCASE | Config.CASE_DOWNCASE)) == (Config.CASE_UPCASE | Config.CASE_DOWNCASE))
                                     specialCopy = true;
                                 else
                                     specialStart += extractLength(codes[specialStart]);
                             }
-                            if (!specialCopy && (folded.flags & Config.CASE_TITLECASE) != 0) {
+                            if (!specialCopy && (foldedFlags & Config.CASE_TITLECASE) != 0) {
                                 if ((flags & Config.CASE_TITLECASE) != 0)
                                     specialCopy = true;
                                 else
                                     specialStart += extractLength(codes[specialStart]);
                             }
-                            if (!specialCopy && (folded.flags & Config.CASE_DOWN_SPECIAL) != 0) {
+                            if (!specialCopy && (foldedFlags & Config.CASE_DOWN_SPECIAL) != 0) {
                                 if ((flags & Config.CASE_DOWN_SPECIAL) == 0)
                                     specialStart += extractLength(codes[specialStart]);
                             }
@@ -500,10 +727,10 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                             finish = start + extractLength(codes[specialStart]);
                             code =  extractCode(codes[specialStart]);
                         } else {
-                            codes = folded.codes;
-                            start = 0;
-                            finish = folded.codes.length;
-                            code = codes[0];
+                            codes = caseFold.data;
+                            start = folded + 1;
+                            finish = start + caseFold.length(folded);
+                            code = codes[start];
                         }
 
                         for (int i = start + 1; i < finish; i++) {
@@ -511,16 +738,22 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
                             code = codes[i];
                         }
                     }
-                } else if ((folded = CaseUnfold11.Values.get(code)) != null) { /* data about character found in CaseUnfold_11_Table */
-                    if ((flags & Config.CASE_TITLECASE) != 0 && (folded.flags & Config.CASE_IS_TITLECASE) != 0) { /* Titlecase needed, but already Titlecase */
+                } else if ((folded = CaseUnfold11.Values.get(code)) >= 0) { /* data about character found in CaseUnfold_11_Table */
+                    final int foldedFlags = CaseUnfold11.Values.flags(folded);
+                    if ((flags & Config.CASE_TITLECASE) != 0 && (foldedFlags & Config.CASE_IS_TITLECASE) != 0) { /* Titlecase needed, but already Titlecase */
                         /* already Titlecase, no changes needed */
-                    } else if ((flags & folded.flags) != 0) { /* needs and data availability match */
+                    } else if ((flags & foldedFlags) != 0) { /* needs and data availability match */
                         flags |= Config.CASE_MODIFIED;
-                        code = folded.codes[(flags & folded.flags & Config.CASE_TITLECASE) != 0 ? 1 : 0];
+                        code = CaseUnfold11.Values.code(folded, (flags & foldedFlags & Config.CASE_TITLECASE) != 0 ? 1 : 0);
                     }
                 }
             }
-            toP += codeToMbc(code, to, toP);
+            if (code == original) { /* unchanged, no need to encode it again */
+                System.arraycopy(bytes, pp.value - length, to, toP, length);
+                toP += length;
+            } else {
+                toP += codeToMbc(code, to, toP);
+            }
             if ((flags & Config.CASE_TITLECASE) != 0) {
                 flags ^= (Config.CASE_UPCASE | Config.CASE_DOWNCASE | Config.CASE_TITLECASE | Config.CASE_UP_SPECIAL | Config.CASE_DOWN_SPECIAL);
             }
@@ -529,6 +762,56 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
         flagP.value = flags;
         return toP - toStart;
     }
+
+    @Override
+    public int caseMapSpan(int flags, byte[]bytes, int p, int end) {
+        if ((flags & Config.CASE_TITLECASE) != 0) return super.caseMapSpan(flags, bytes, p, end);
+        flags |= (flags & (Config.CASE_UPCASE | Config.CASE_DOWNCASE)) << Config.CASE_SPECIAL_OFFSET;
+        final boolean asciiCompatible = isAsciiCompatible();
+
+        while (p < end) {
+            int c = bytes[p];
+            if (asciiCompatible && c >= 0) {
+                if (c >= 'a' && c <= 'z' ? (flags & Config.CASE_UPCASE) != 0 : c >= 'A' && c <= 'Z' && (flags & (Config.CASE_DOWNCASE | Config.CASE_FOLD)) != 0) return p;
+                p++;
+                continue;
+            }
+            int length = length(bytes, p, end);
+            if (length < 0) return p;
+            if (caseMapModifies(mbcToCode(bytes, p, end), flags)) return p;
+            p += length;
+        }
+        return p;
+    }
+
+    @Override
+    public int caseMapLength(int flags, byte[]bytes, int p, int end) {
+        if ((flags & Config.CASE_TITLECASE) == 0) {
+            int span = caseMapSpan(flags, bytes, p, end);
+            if (span == end) return end - p;
+            int length = caseMapLengthByMapping(flags, bytes, span, end);
+            return length < 0 ? length : span - p + length;
+        }
+        return caseMapLengthByMapping(flags, bytes, p, end);
+    }
+
+    // mirrors the decisions taken by caseMap for a single character when titlecase mapping is not requested
+    private static boolean caseMapModifies(int code, int flags) {
+        if (code <= 'z') {
+            if (code >= 'a' && code <= 'z') return (flags & Config.CASE_UPCASE) != 0;
+            return code >= 'A' && code <= 'Z' && (flags & (Config.CASE_DOWNCASE | Config.CASE_FOLD)) != 0;
+        } else if ((flags & Config.CASE_ASCII_ONLY) != 0 || code < 0x00B5) {
+            return false;
+        } else if (code == I_WITH_DOT_ABOVE) {
+            return (flags & (Config.CASE_DOWNCASE | Config.CASE_FOLD)) != 0;
+        } else if (code == DOTLESS_i) {
+            return (flags & Config.CASE_UPCASE) != 0;
+        }
+        int folded;
+        if ((folded = CaseFold.Values.get(code)) >= 0) return (flags & CaseFold.Values.flags(folded)) != 0;
+        if ((folded = CaseUnfold11.Values.get(code)) >= 0) return (flags & CaseUnfold11.Values.flags(folded)) != 0;
+        return false;
+    }
     static final short UNICODE_ISO_8859_1_CTypeTable[] = {
           0x4008, 0x4008, 0x4008, 0x4008, 0x4008, 0x4008, 0x4008, 0x4008,
           0x4008, 0x420c, 0x4209, 0x4208, 0x4208, 0x4208, 0x4008, 0x4008,
@@ -564,167 +847,33 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
           0x30e2, 0x30e2, 0x30e2, 0x30e2, 0x30e2, 0x30e2, 0x30e2, 0x30e2
     };
 
-    static class CTypeName {
-        private static final CaseInsensitiveBytesHash<Integer> Values = initializeCTypeNameTable();
-
-        private static CaseInsensitiveBytesHash<Integer> initializeCTypeNameTable() {
-            CaseInsensitiveBytesHash<Integer> table = new CaseInsensitiveBytesHash<Integer>();
-            for (int i = 0; i < UnicodeCodeRange.CodeRangeTable.length; i++) {
-                table.putDirect(UnicodeCodeRange.CodeRangeTable[i].name, i);
-            }
-            return table;
-        }
-    }
-
-    private static class CodeList {
-        CodeList(DataInputStream dis) throws IOException {
-            int packed = dis.readInt();
-            flags = packed & ~Config.CodePointMask;
-            int length = packed & Config.CodePointMask;
-            codes = new int[length];
-            for (int j = 0; j < length; j++) {
-                codes[j] = dis.readInt();
-            }
-        }
-        final int[]codes;
-        final int flags;
-    }
-
     private static class CaseFold {
-        static IntHash<CodeList> read(String table) {
-            try {
-                DataInputStream dis = ArrayReader.openStream(table);
-                int size = dis.readInt();
-                IntHash<CodeList> hash = new IntHash<CodeList>(size);
-                for (int i = 0; i < size; i++) {
-                    hash.putDirect(dis.readInt(), new CodeList(dis));
-                }
-                dis.close();
-                return hash;
-            } catch (IOException iot) {
-                throw new RuntimeException(iot);
-            }
-        }
-
-        static final IntHash<CodeList>Values = read("CaseFold");
+        static final CaseFoldTable Values = CaseFoldTable.read("CaseFold");
     }
 
     private static class CaseUnfold11 {
-        private static final int From[];
-        private static final CodeList To[];
-        private static final int Locale_From[];
-        private static final CodeList Locale_To[];
-
-        static Object[] read(String table) {
-            try {
-                DataInputStream dis = ArrayReader.openStream(table);
-                int size = dis.readInt();
-                int[]from = new int[size];
-                CodeList[]to = new CodeList[size];
-                for (int i = 0; i < size; i++) {
-                    from[i] = dis.readInt();
-                    to[i] = new CodeList(dis);
-                }
-                dis.close();
-                return new Object[] {from, to};
-            } catch (IOException iot) {
-                throw new RuntimeException(iot);
-            }
-        }
-
-        static {
-            Object[]unfold;
-            unfold = read("CaseUnfold_11");
-            From = (int[])unfold[0];
-            To = (CodeList[])unfold[1];
-            unfold = read("CaseUnfold_11_Locale");
-            Locale_From = (int[])unfold[0];
-            Locale_To = (CodeList[])unfold[1];
-        }
+        // locale entries start at Values.end(0)
+        static final CaseFoldTable Values = CaseFoldTable.read("CaseUnfold_11", "CaseUnfold_11_Locale");
+    }
 
-        static IntHash<CodeList> initializeUnfold1Hash() {
-            IntHash<CodeList> hash = new IntHash<CodeList>(From.length + Locale_From.length);
-            for (int i = 0; i < From.length; i++) {
-                hash.putDirect(From[i], To[i]);
-            }
-            for (int i = 0; i < Locale_From.length; i++) {
-                hash.putDirect(Locale_From[i], Locale_To[i]);
-            }
-            return hash;
-        }
-        static final IntHash<CodeList> Values = initializeUnfold1Hash();
-    }
-
-    private static Object[] readFoldN(int fromSize, String table) {
-        try {
-            DataInputStream dis = ArrayReader.openStream(table);
-            int size = dis.readInt();
-            int[][]from = new int[size][];
-            CodeList[]to = new CodeList[size];
-            for (int i = 0; i < size; i++) {
-                from[i] = new int[fromSize];
-                for (int j = 0; j < fromSize; j++) {
-                    from[i][j] = dis.readInt();
-                }
-                to[i] = new CodeList(dis);
-            }
-            dis.close();
-            return new Object[] {from, to};
-        } catch (IOException iot) {
-            throw new RuntimeException(iot);
+    private static int[][] keys(CaseFoldTable table) {
+        int[][]keys = new int[table.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = table.key(i);
         }
+        return keys;
     }
 
     private static class CaseUnfold12 {
-        private static final int From[][];
-        private static final CodeList To[];
-        private static final int Locale_From[][];
-        private static final CodeList Locale_To[];
-
-        static {
-            Object[]unfold;
-            unfold = readFoldN(2, "CaseUnfold_12");
-            From = (int[][])unfold[0];
-            To = (CodeList[])unfold[1];
-            unfold = readFoldN(2, "CaseUnfold_12_Locale");
-            Locale_From = (int[][])unfold[0];
-            Locale_To = (CodeList[])unfold[1];
-        }
-
-        private static IntArrayHash<CodeList> initializeUnfold2Hash() {
-            IntArrayHash<CodeList> unfold2 = new IntArrayHash<CodeList>(From.length + Locale_From.length);
-            for (int i = 0; i < From.length; i++) {
-                unfold2.putDirect(From[i], To[i]);
-            }
-            for (int i = 0; i < Locale_From.length; i++) {
-                unfold2.putDirect(Locale_From[i], Locale_To[i]);
-            }
-            return unfold2;
-        }
-
-        static final IntArrayHash<CodeList> Values = initializeUnfold2Hash();
+        // locale entries start at Values.end(0)
+        static final CaseFoldTable Values = CaseFoldTable.read(2, "CaseUnfold_12", "CaseUnfold_12_Locale");
+        // sequences handed out by applyAllCaseFold
+        static final int From[][] = keys(Values);
     }
 
     private static class CaseUnfold13 {
-        private static final int From[][];
-        private static final CodeList To[];
-
-        static {
-            Object[]unfold;
-            unfold = readFoldN(3, "CaseUnfold_13");
-            From = (int[][])unfold[0];
-            To = (CodeList[])unfold[1];
-        }
-
-        private static IntArrayHash<CodeList> initializeUnfold3Hash() {
-            IntArrayHash<CodeList> unfold3 = new IntArrayHash<CodeList>(From.length);
-            for (int i = 0; i < From.length; i++) {
-                unfold3.putDirect(From[i], To[i]);
-            }
-            return unfold3;
-        }
-
-        static final IntArrayHash<CodeList> Values = initializeUnfold3Hash();
+        static final CaseFoldTable Values = CaseFoldTable.read(3, "CaseUnfold_13");
+        static final int From[][] = keys(Values);
     }
 
     private static int extractLength(int packed) {
@@ -738,4 +887,30 @@ public abstract class UnicodeEncoding extends MultiByteEncoding {
     private static class CaseMappingSpecials {
         static final int[] Values = ArrayReader.readIntArray("CaseMappingSpecials");
     }
+
+    /**
+     * Case folding and mapping tables which are otherwise loaded on first use
+     */
+    public enum CaseTable {
+        CASE_FOLD {
+            public void load() { CaseFold.Values.size(); }
+        },
+        CASE_UNFOLD_11 {
+            public void load() { CaseUnfold11.Values.size(); }
+        },
+        CASE_UNFOLD_12 {
+            public void load() { CaseUnfold12.Values.size(); }
+        },
+        CASE_UNFOLD_13 {
+            public void load() { CaseUnfold13.Values.size(); }
+        },
+        CASE_MAPPING_SPECIALS {
+            public void load() { CaseMappingSpecials.Values.getClass(); }
+        };
+
+        /**
+         * Forces the table to be read (first call only)
+         */
+        public abstract void load();
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.unicode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.jcodings.CodeRangeSet;
+
+/**
+ * Membership test for a set of code points compiled to work on UTF-8 bytes without decoding to a code point:
+ * the bits of a lead byte and its continuation bytes directly select a 64 bit leaf through two deduplicated
+ * index stages (<code>code &gt;&gt; 12</code>, then <code>(code &gt;&gt; 6) &amp; 63</code>), and the last byte
+ * selects the bit. Ill formed sequences (including overlongs and surrogates) never match.
+ */
+public final class Utf8Matcher {
+    private static final int MAX_CODE_POINT = 0x10ffff;
+
+    private final char[]top;        // code >> 12 -> mid block
+    private final char[]mid;        // mid block * 64 + ((code >> 6) & 63) -> leaf
+    private final long[]leaves;
+
+    private Utf8Matcher(char[]top, char[]mid, long[]leaves) {
+        this.top = top;
+        this.mid = mid;
+        this.leaves = leaves;
+    }
+
+    public static Utf8Matcher compile(UnicodeCodeRange range) {
+        return compile(range.getRange());
+    }
+
+    public static Utf8Matcher compile(CodeRangeSet set) {
+        return compile(set.toArray());
+    }
+
+    /**
+     * Compiles a code range table in the <code>[n, from1, to1, ...]</code> layout, code points beyond U+10FFFF are ignored
+     */
+    public static Utf8Matcher compile(int[]ranges) {
+        long[]bits = new long[(MAX_CODE_POINT + 1) >> 6];
+        for (int i = 0; i < ranges[0]; i++) {
+            int from = ranges[2 * i + 1], to = Math.min(ranges[2 * i + 2], MAX_CODE_POINT);
+            for (int code = from; code <= to; ) {
+                if ((code & 63) == 0 && code + 63 <= to) {
+                    bits[code >> 6] = -1L;
+                    code += 64;
+                } else {
+                    bits[code >> 6] |= 1L << (code & 63);
+                    code++;
+                }
+            }
+        }
+
+        HashMap<Long, Integer> leafIds = new HashMap<Long, Integer>();
+        long[]leaves = new long[bits.length];
+        HashMap<String, Integer> midIds = new HashMap<String, Integer>();
+        char[]mid = new char[bits.length];
+        char[]top = new char[bits.length >> 6];
+        char[]block = new char[64];
+        for (int t = 0; t < top.length; t++) {
+            for (int m = 0; m < 64; m++) {
+                long leaf = bits[(t << 6) | m];
+                Integer id = leafIds.get(leaf);
+                if (id == null) {
+                    leafIds.put(leaf, id = leafIds.size());
+                    leaves[id] = leaf;
+                }
+                block[m] = (char)(int)id;
+            }
+            String key = new String(block);
+            Integer id = midIds.get(key);
+            if (id == null) {
+                midIds.put(key, id = midIds.size());
+                System.arraycopy(block, 0, mid, id << 6, 64);
+            }
+            top[t] = (char)(int)id;
+        }
+        return new Utf8Matcher(top, Arrays.copyOf(mid, midIds.size() << 6), Arrays.copyOf(leaves, leafIds.size()));
+    }
+
+    public boolean contains(int code) {
+        if (code < 0 || code > MAX_CODE_POINT) return false;
+        return test(code >> 12, (code >> 6) & 63, code & 63);
+    }
+
+    private boolean test(int t, int m, int b) {
+        return (leaves[mid[(top[t] << 6) | m]] & (1L << b)) != 0;
+    }
+
+    /**
+     * Returns the byte length of the character at <code>p</code> if it is well formed and in the set, 0 otherwise
+     */
+    public int matchLength(byte[]bytes, int p, int end) {
+        int n = scan(bytes, p, end);
+        return n > 0 ? n : 0;
+    }
+
+    /**
+     * Returns the end of the longest prefix of <code>bytes[p..end)</code> made only of characters in the set
+     */
+    public int span(byte[]bytes, int p, int end) {
+        while (p < end) {
+            int n = scan(bytes, p, end);
+            if (n <= 0) break;
+            p += n;
+        }
+        return p;
+    }
+
+    /**
+     * Returns the start of the first character in the set at or after <code>p</code>, or <code>end</code>;
+     * characters not in the set are skipped whole, ill formed bytes one at a time
+     */
+    public int find(byte[]bytes, int p, int end) {
+        while (p < end) {
+            int n = scan(bytes, p, end);
+            if (n > 0) return p;
+            p -= n;
+        }
+        return end;
+    }
+
+    /**
+     * Length of a matching character, minus the length of a well formed one that does not match, or -1 for an ill formed byte
+     */
+    private int scan(byte[]bytes, int p, int end) {
+        int c = bytes[p] & 0xff;
+        if (c < 0x80) return test(0, c >> 6, c & 63) ? 1 : -1;
+        if (c < 0xc2) return -1;
+        if (c < 0xe0) {
+            if (p + 1 >= end) return -1;
+            int c1 = bytes[p + 1] & 0xff;
+            if ((c1 & 0xc0) != 0x80) return -1;
+            return test(0, c & 0x1f, c1 & 0x3f) ? 2 : -2;
+        }
+        if (c < 0xf0) {
+            if (p + 2 >= end) return -1;
+            int c1 = bytes[p + 1] & 0xff, c2 = bytes[p + 2] & 0xff;
+            if ((c1 & 0xc0) != 0x80 || (c2 & 0xc0) != 0x80) return -1;
+            if ((c == 0xe0 && c1 < 0xa0) || (c == 0xed && c1 >= 0xa0)) return -1; /* overlong, surrogate */
+            return test(c & 0x0f, c1 & 0x3f, c2 & 0x3f) ? 3 : -3;
+        }
+        if (c < 0xf5) {
+            if (p + 3 >= end) return -1;
+            int c1 = bytes[p + 1] & 0xff, c2 = bytes[p + 2] & 0xff, c3 = bytes[p + 3] & 0xff;
+            if ((c1 & 0xc0) != 0x80 || (c2 & 0xc0) != 0x80 || (c3 & 0xc0) != 0x80) return -1;
+            if ((c == 0xf0 && c1 < 0x90) || (c == 0xf4 && c1 >= 0x90)) return -1; /* overlong, beyond U+10FFFF */
+            return test(((c & 0x07) << 6) | (c1 & 0x3f), c2 & 0x3f, c3 & 0x3f) ? 4 : -4;
+        }
+        return -1;
+    }
+}
@@ -21,31 +21,124 @@ package org.jcodings.util;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.jar.JarEntry;
 
 import org.jcodings.exception.InternalException;
 
 public class ArrayReader {
+    private static final int READ_CHUNK = 8192;
 
-    public static DataInputStream openStream(String name) {
-        String entry = "/tables/" + name + ".bin";
+    // byte identical tables are stored once, the others are listed here as alias=table
+    private static final Properties aliases = new Properties();
+    static {
+        InputStream is = ArrayReader.class.getResourceAsStream("/tables/TableAliases.properties");
+        if (is != null) {
+            try {
+                aliases.load(is);
+                is.close();
+            } catch (IOException ioe) {
+                decorate(ioe, "TableAliases");
+            }
+        }
+    }
+
+    /**
+     * Resource path of a table, following archive level aliases
+     */
+    public static String resourcePath(String name) {
+        String target = aliases.getProperty(name);
+        return "/tables/" + (target == null ? name : target) + ".bin";
+    }
+
+    static InputStream openRawStream(String name) {
+        String entry = resourcePath(name);
         InputStream is = ArrayReader.class.getResourceAsStream(entry);
         if (is == null) throw new InternalException("entry: " + entry + " not found");
-        return new DataInputStream(new BufferedInputStream(is));
+        return is;
+    }
+
+    public static DataInputStream openStream(String name) {
+        return new DataInputStream(new BufferedInputStream(openRawStream(name)));
+    }
+
+    /**
+     * Reads the whole table resource in bulk
+     */
+    public static byte[] readAllBytes(String name) {
+        long start = System.nanoTime();
+        InputStream is = openRawStream(name);
+        try {
+            byte[] buf = new byte[Math.max(is.available(), READ_CHUNK)];
+            int length = 0;
+            while (true) {
+                int n = is.read(buf, length, buf.length - length);
+                if (n == -1) break;
+                length += n;
+                if (length == buf.length) {
+                    // exact size hint from available(), avoid growing just to detect the end
+                    int b = is.read();
+                    if (b == -1) break;
+                    byte[] tmp = new byte[buf.length << 1];
+                    System.arraycopy(buf, 0, tmp, 0, length);
+                    buf = tmp;
+                    buf[length++] = (byte)b;
+                }
+            }
+            is.close();
+            if (length != buf.length) {
+                byte[] bytes = new byte[length];
+                System.arraycopy(buf, 0, bytes, 0, length);
+                buf = bytes;
+            }
+            TableStats.tableLoaded(name, length, System.nanoTime() - start);
+            return buf;
+        } catch (IOException ioe) {
+            decorate(ioe, name);
+            return null;
+        }
+    }
+
+    /**
+     * Big endian int view over the whole table resource, tables consisting of variable length records
+     * decode straight from it instead of going through a DataInputStream
+     */
+    public static IntBuffer readIntBuffer(String name) {
+        byte[] bytes = readAllBytes(name);
+        if ((bytes.length & 3) != 0) throw new InternalException("length mismatch for table: " + name + " (" + bytes.length + " bytes)");
+        return ByteBuffer.wrap(bytes).asIntBuffer();
     }
 
     public static byte[] readByteArray(String name) {
-        DataInputStream dis = openStream(name);
+        long start = System.nanoTime();
+        DataInputStream dis = new DataInputStream(openRawStream(name));
         try {
             int size = dis.readInt();
             byte[] bytes = new byte[size];
-            for (int i = 0; i < size; i++) {
-                bytes[i] = dis.readByte();
-            }
+            dis.readFully(bytes);
             checkAvailable(dis, name);
             dis.close();
-            return bytes;
+            TableStats.tableLoaded(name, size, System.nanoTime() - start);
+            return intern(bytes, Arrays.hashCode(bytes));
         } catch (IOException ioe) {
             decorate(ioe, name);
             return null;
@@ -53,16 +146,18 @@ public class ArrayReader {
     }
 
     public static int[] readIntArray(String name) {
-        DataInputStream dis = openStream(name);
+        long start = System.nanoTime();
+        DataInputStream dis = new DataInputStream(openRawStream(name));
         try {
             int size = dis.readInt();
-            int[] ints = new int[size];
-            for (int i = 0; i < size; i++) {
-                ints[i] = dis.readInt();
-            }
+            byte[] bytes = new byte[size << 2];
+            dis.readFully(bytes);
             checkAvailable(dis, name);
             dis.close();
-            return ints;
+            int[] ints = new int[size];
+            ByteBuffer.wrap(bytes).asIntBuffer().get(ints);
+            TableStats.tableLoaded(name, (long)size << 2, System.nanoTime() - start);
+            return intern(ints, Arrays.hashCode(ints));
         } catch (IOException ioe) {
             decorate(ioe, name);
             return null;
@@ -70,30 +165,126 @@ public class ArrayReader {
     }
 
     public static int[][] readNestedIntArray(String name) {
-        DataInputStream dis = openStream(name);
+        IntBuffer buffer = readIntBuffer(name);
+        int size = buffer.get();
+        int[][] ints = new int[size][];
+        for (int i = 0; i < size; i++) {
+            int[] iints = new int[buffer.get()];
+            buffer.get(iints);
+            ints[i] = iints;
+        }
+        checkRemaining(buffer, name);
+        return ints;
+    }
+
+    /**
+     * Read only mapping of the payload (past the element count header) of a table, the resource gets extracted
+     * into the given directory first if needed
+     */
+    public static ByteBuffer mapPayload(File dir, String name) throws IOException {
+        long start = System.nanoTime();
+        String entry = resourcePath(name);
+        URL url = ArrayReader.class.getResource(entry);
+        if (url == null) throw new InternalException("entry: " + entry + " not found");
+
+        String fileName = entry.substring(entry.lastIndexOf('/') + 1, entry.length() - ".bin".length());
+        Path file = dir.toPath().resolve(fileName + "-" + fingerprint(url) + ".bin");
+        if (!Files.isRegularFile(file)) extract(url, file);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
         try {
-            int size = dis.readInt();
-            int[][] ints = new int[size][];
-            for (int i = 0; i < size; i++) {
-                int iSize = dis.readInt();
-                int[] iints = new int[iSize];
-                ints[i] = iints;
-                for (int k = 0; k < iSize; k++) {
-                    iints[k] = dis.readInt();
-                }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int size = buffer.getInt();
+            int expected = name.endsWith("_WordArray") ? size << 2 : size;
+            if (buffer.remaining() != expected) throw new IOException("length mismatch for mapped table: " + file);
+            TableStats.tableMapped(name, expected, System.nanoTime() - start);
+            return buffer.slice();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static String fingerprint(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            connection.setUseCaches(false);
+            JarEntry jarEntry = ((JarURLConnection)connection).getJarEntry();
+            if (jarEntry != null && jarEntry.getCrc() != -1) {
+                return Long.toHexString(jarEntry.getSize()) + "-" + Long.toHexString(jarEntry.getCrc());
             }
+        }
+        return Long.toHexString(connection.getContentLengthLong()) + "-" + Long.toHexString(connection.getLastModified());
+    }
 
-            checkAvailable(dis, name);
-            dis.close();
-            return ints;
-        } catch (IOException ioe) {
-            decorate(ioe, name);
-            return null;
+    // write to a private temporary file first so concurrent processes never observe a partial table
+    private static void extract(URL url, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            InputStream is = url.openStream();
+            try {
+                Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                is.close();
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ioe) {
+                if (!Files.isRegularFile(file)) Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
         }
     }
 
-    static void checkAvailable(DataInputStream dis, String name) throws IOException {
-        if (dis.available() != 0) throw new InternalException("length mismatch for table: " + name + " (" + dis.available() + " left)");
+    // loaded tables interned by content, distinct names with equal payloads share one instance
+    private static final HashMap<Integer, ArrayList<InternRef>> internPool = new HashMap<Integer, ArrayList<InternRef>>();
+    private static final ReferenceQueue<Object> internQueue = new ReferenceQueue<Object>();
+
+    private static final class InternRef extends WeakReference<Object> {
+        final int hash;
+
+        InternRef(Object table, int hash) {
+            super(table, internQueue);
+            this.hash = hash;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> T intern(T table, int hash) {
+        expungeCollected();
+        ArrayList<InternRef> bucket = internPool.get(hash);
+        if (bucket == null) internPool.put(hash, bucket = new ArrayList<InternRef>(1));
+        for (int i = bucket.size() - 1; i >= 0; i--) {
+            Object existing = bucket.get(i).get();
+            if (existing != null && sameContent(existing, table)) return (T)existing;
+        }
+        bucket.add(new InternRef(table, hash));
+        return table;
+    }
+
+    // drops the entries of collected tables, and their buckets once empty
+    private static void expungeCollected() {
+        Reference<?> ref;
+        while ((ref = internQueue.poll()) != null) {
+            InternRef entry = (InternRef)ref;
+            ArrayList<InternRef> bucket = internPool.get(entry.hash);
+            if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) internPool.remove(entry.hash);
+        }
+    }
+
+    private static boolean sameContent(Object a, Object b) {
+        if (a instanceof int[] && b instanceof int[]) return Arrays.equals((int[])a, (int[])b);
+        if (a instanceof byte[] && b instanceof byte[]) return Arrays.equals((byte[])a, (byte[])b);
+        return false;
+    }
+
+    public static void checkRemaining(IntBuffer buffer, String name) {
+        if (buffer.hasRemaining()) throw new InternalException("length mismatch for table: " + name + " (" + (buffer.remaining() << 2) + " left)");
+    }
+
+    static void checkAvailable(InputStream is, String name) throws IOException {
+        if (is.read() != -1) throw new InternalException("length mismatch for table: " + name + " (" + (is.available() + 1) + " left)");
     }
 
     static void decorate(IOException ioe, String name) {
@@ -0,0 +1,116 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.util;
+
+/**
+ * Open addressed byte sequence keyed map, the counterpart of {@link IntMap} for names: hashes, keys and values
+ * live in parallel arrays probed linearly over a power of two table. Keys are compared either exactly or ASCII
+ * case insensitively, with the same hash functions as {@link BytesHash} and {@link CaseInsensitiveBytesHash}.
+ * Insertion order is not kept, entries cannot be removed and values must not be <code>null</code>.
+ */
+public final class BytesMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private final boolean caseInsensitive;
+    private int[]hashes;
+    private byte[][]keys;
+    private Object[]values;
+    private int mask;
+    private int size;
+
+    public BytesMap(boolean caseInsensitive) {
+        this(caseInsensitive, MIN_CAPACITY / 2);
+    }
+
+    public BytesMap(boolean caseInsensitive, int expected) {
+        this.caseInsensitive = caseInsensitive;
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) capacity <<= 1;
+        hashes = new int[capacity];
+        keys = new byte[capacity][];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public V get(byte[]bytes) {
+        return get(bytes, 0, bytes.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(byte[]bytes, int p, int end) {
+        int hash = hash(bytes, p, end);
+        for (int i = IntMap.mix(hash) & mask; ; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) return null;
+            if (hashes[i] == hash && equals(keys[i], bytes, p, end)) return (V)value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(byte[]key, V value) {
+        int hash = hash(key, 0, key.length);
+        int i = IntMap.mix(hash) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && equals(keys[i], key, 0, key.length)) {
+                V old = (V)values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        hashes[i] = hash;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) resize();
+        return null;
+    }
+
+    private void resize() {
+        int[]oldHashes = hashes;
+        byte[][]oldKeys = keys;
+        Object[]oldValues = values;
+        hashes = new int[oldHashes.length << 1];
+        keys = new byte[oldKeys.length << 1][];
+        values = new Object[oldValues.length << 1];
+        mask = values.length - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = IntMap.mix(oldHashes[j]) & mask;
+            while (values[i] != null) i = (i + 1) & mask;
+            hashes[i] = oldHashes[j];
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private int hash(byte[]bytes, int p, int end) {
+        return caseInsensitive ? CaseInsensitiveBytesHash.hashCode(bytes, p, end) : BytesHash.hashCode(bytes, p, end);
+    }
+
+    private boolean equals(byte[]key, byte[]bytes, int p, int end) {
+        if (caseInsensitive) return CaseInsensitiveBytesHash.caseInsensitiveEquals(key, 0, key.length, bytes, p, end);
+        if (key.length != end - p) return false;
+        for (int i = 0; i < key.length; i++) if (key[i] != bytes[p + i]) return false;
+        return true;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.util;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+
+import org.jcodings.exception.InternalException;
+
+/**
+ * Keeps reloadable tables (transcoder tables, Unicode code ranges) resident up to a heap byte budget.
+ *
+ * Tables are reached through {@link Handle}s. While resident a handle holds its table strongly, once the
+ * budget is exceeded the least recently used tables (clock approximation) are demoted to soft references
+ * and reloaded from their resources if the garbage collector reclaimed them in the meantime.
+ *
+ * The budget defaults to the <code>jcodings.table.cache.budget</code> system property (in bytes) and is
+ * unlimited otherwise. Accesses to resident tables are not counted so lookups stay free of shared writes;
+ * {@link #getHits()} counts demoted tables recovered without reloading, {@link #getMisses()} counts loads.
+ */
+public final class TableCache {
+    public static final String BUDGET_PROPERTY = "jcodings.table.cache.budget";
+
+    private static final ArrayDeque<Handle<?>> resident = new ArrayDeque<Handle<?>>();
+    private static long budget = defaultBudget();
+    private static long residentBytes;
+    private static long hits, misses, evictions;
+
+    private static long defaultBudget() {
+        String value = System.getProperty(BUDGET_PROPERTY);
+        return value != null && value.length() > 0 ? Long.parseLong(value.trim()) : Long.MAX_VALUE;
+    }
+
+    private TableCache() {}
+
+    public static abstract class Handle<T> {
+        private volatile T value;
+        private SoftReference<T> demoted;
+        private long size;
+        private int epoch; // bumped by discard(), a load started under an older epoch may have read stale data
+        // clock bit, set without the lock on every access: a lost or late write only changes which table the next
+        // eviction picks, the lock taken by evict() makes the writes of other threads visible sooner or later
+        private boolean referenced;
+
+        /**
+         * Reads the table from its resource
+         */
+        protected abstract T load();
+
+        /**
+         * Approximate heap size of the table in bytes
+         */
+        protected abstract long sizeOf(T table);
+
+        public final T get() {
+            T table = value;
+            if (table != null) {
+                if (!referenced) referenced = true;
+                return table;
+            }
+            return fault(this);
+        }
+
+        public final boolean isResident() {
+            return value != null;
+        }
+
+        /**
+         * Drops the table, the next access loads it again, as do loads already in progress
+         */
+        public final void discard() {
+            TableCache.discard(this);
+        }
+    }
+
+    private static <T> T fault(Handle<T> handle) {
+        int epoch;
+        synchronized (TableCache.class) {
+            epoch = handle.epoch;
+            T table = handle.value;
+            if (table != null) return table;
+            if (handle.demoted != null) {
+                table = handle.demoted.get();
+                handle.demoted = null;
+                if (table != null) {
+                    hits++;
+                    admit(handle, table);
+                    return table;
+                }
+            }
+        }
+
+        while (true) {
+            // read outside the lock so unrelated tables can be loaded concurrently
+            T loaded = handle.load();
+
+            synchronized (TableCache.class) {
+                T table = handle.value;
+                if (table != null) return table;
+                misses++;
+                if (handle.epoch == epoch) {
+                    admit(handle, loaded);
+                    return loaded;
+                }
+                epoch = handle.epoch; // discarded while loading, e.g. a new mapped directory
+            }
+        }
+    }
+
+    private static <T> void admit(Handle<T> handle, T table) {
+        handle.size = handle.sizeOf(table);
+        handle.value = table;
+        handle.referenced = true;
+        if (handle.size == 0) return; // off heap, never evicted
+        resident.addLast(handle);
+        residentBytes += handle.size;
+        evict(handle);
+    }
+
+    private static void evict(Handle<?> keep) {
+        while (residentBytes > budget && resident.size() > 1) {
+            Handle<?> handle = resident.pollFirst();
+            if (handle == keep || handle.referenced) {
+                handle.referenced = false;
+                resident.addLast(handle);
+            } else {
+                demote(handle);
+            }
+        }
+    }
+
+    private static <T> void demote(Handle<T> handle) {
+        handle.demoted = new SoftReference<T>(handle.value);
+        handle.value = null;
+        residentBytes -= handle.size;
+        evictions++;
+    }
+
+    private static synchronized <T> void discard(Handle<T> handle) {
+        if (handle.value != null && handle.size != 0) {
+            resident.remove(handle);
+            residentBytes -= handle.size;
+        }
+        handle.value = null;
+        handle.demoted = null;
+        handle.epoch++;
+    }
+
+    /**
+     * Sets the heap byte budget for resident tables, tables beyond it are demoted right away
+     */
+    public static synchronized void setBudget(long bytes) {
+        if (bytes < 0) throw new InternalException("negative budget: " + bytes);
+        budget = bytes;
+        evict(null);
+    }
+
+    public static synchronized long getBudget() {
+        return budget;
+    }
+
+    public static synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public static synchronized int getResidentCount() {
+        return resident.size();
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Demotes all resident tables, zeroes the counters and restores the default budget; lets tests start from a
+     * known state since the cache is shared by the whole JVM
+     */
+    static synchronized void reset() {
+        while (!resident.isEmpty()) demote(resident.pollFirst());
+        budget = defaultBudget();
+        hits = misses = evictions = 0;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jcodings.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.jcodings.Encoding;
+import org.jcodings.transcode.Transcoder;
+
+/**
+ * Introspection of the tables read through {@link ArrayReader} or memory mapped by the transcoders: size, load time,
+ * loading thread and the class that asked for each table, along with the number of encoding instances and of
+ * transcoder tables. Tables reloaded after an eviction by {@link TableCache} keep one entry reporting the latest load.
+ *
+ * The same numbers can be published over JMX with {@link #registerMBean()}, which needs the <code>java.management</code> module.
+ */
+public final class TableStats {
+    public static final String MBEAN_NAME = "org.jcodings:type=TableStats";
+
+    private static final LinkedHashMap<String, Table> tables = new LinkedHashMap<String, Table>();
+    private static long tableBytes, mappedBytes, loadNanos;
+
+    private TableStats() {}
+
+    public static final class Table {
+        private final String name;
+        private final long bytes, loadNanos;
+        private final String thread, requester;
+        private final int loads;
+        private final boolean offHeap;
+
+        Table(String name, long bytes, long loadNanos, String thread, String requester, int loads, boolean offHeap) {
+            this.name = name;
+            this.bytes = bytes;
+            this.loadNanos = loadNanos;
+            this.thread = thread;
+            this.requester = requester;
+            this.loads = loads;
+            this.offHeap = offHeap;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Size of the loaded array in bytes, or of the mapped region for off heap tables
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getLoadNanos() {
+            return loadNanos;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        /**
+         * The first class on the loading stack other than the reader and the table cache
+         */
+        public String getRequester() {
+            return requester;
+        }
+
+        /**
+         * Number of times the table has been read, more than one after evictions
+         */
+        public int getLoads() {
+            return loads;
+        }
+
+        /**
+         * Whether the latest load memory mapped the table instead of reading it into the heap
+         */
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + bytes + " bytes" + (offHeap ? " mapped " : " ") + (loadNanos / 1000) + " us " + thread + " " + requester + (loads > 1 ? " x" + loads : "");
+        }
+    }
+
+    static void tableLoaded(String name, long bytes, long nanos) {
+        record(name, bytes, nanos, false);
+    }
+
+    static void tableMapped(String name, long bytes, long nanos) {
+        record(name, bytes, nanos, true);
+    }
+
+    private static void record(String name, long bytes, long nanos, boolean offHeap) {
+        String requester = null;
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.equals(ArrayReader.class.getName()) && !className.equals(TableStats.class.getName()) && !className.startsWith(TableCache.class.getName())) {
+                requester = className;
+                break;
+            }
+        }
+        String thread = Thread.currentThread().getName();
+        synchronized (TableStats.class) {
+            Table previous = tables.get(name);
+            if (previous != null) {
+                if (previous.offHeap) mappedBytes -= previous.bytes; else tableBytes -= previous.bytes;
+            }
+            tables.put(name, new Table(name, bytes, nanos, thread, requester, previous == null ? 1 : previous.loads + 1, offHeap));
+            if (offHeap) mappedBytes += bytes; else tableBytes += bytes;
+            loadNanos += nanos;
+        }
+    }
+
+    /**
+     * Snapshot of the loaded tables in first load order
+     */
+    public static synchronized List<Table> getTables() {
+        return new ArrayList<Table>(tables.values());
+    }
+
+    public static synchronized int getTableCount() {
+        return tables.size();
+    }
+
+    /**
+     * Sum of the latest load sizes of all heap tables, tables shared by content through the intern pool are counted per name
+     */
+    public static synchronized long getTableBytes() {
+        return tableBytes;
+    }
+
+    /**
+     * Sum of the sizes of all memory mapped tables, these live in the page cache rather than on the heap
+     */
+    public static synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Total time spent reading tables, reloads included
+     */
+    public static synchronized long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * Encodings instantiated so far, replicas included, see {@link Encoding#getInstanceCount()}
+     */
+    public static int getEncodingInstances() {
+        return Encoding.getInstanceCount();
+    }
+
+    /**
+     * Transcoder tables referenced so far, see {@link Transcoder#getTableCount()}
+     */
+    public static int getTranscoderTables() {
+        return Transcoder.getTableCount();
+    }
+
+    /**
+     * Registers a {@link TableStatsMBean} under {@link #MBEAN_NAME} with the platform MBean server, does nothing when already registered
+     */
+    public static void registerMBean() {
+        MBeans.register(MBEAN_NAME, TableStatsMBean.class, new Bean());
+    }
+
+    private static final class Bean implements TableStatsMBean {
+        public int getTableCount() {
+            return TableStats.getTableCount();
+        }
+
+        public long getTableBytes() {
+            return TableStats.getTableBytes();
+        }
+
+        public long getMappedBytes() {
+            return TableStats.getMappedBytes();
+        }
+
+        public long getLoadNanos() {
+            return TableStats.getLoadNanos();
+        }
+
+        public int getEncodingInstances() {
+            return TableStats.getEncodingInstances();
+        }
+
+        public int getTranscoderTables() {
+            return TableStats.getTranscoderTables();
+        }
+
+        public long getResidentBytes() {
+            return TableCache.getResidentBytes();
+        }
+
+        public String[] getTables() {
+            List<Table> list = TableStats.getTables();
+            String[] result = new String[list.size()];
+            for (int i = 0; i < result.length; i++) result[i] = list.get(i).toString();
+            return result;
+        }
+    }
+}
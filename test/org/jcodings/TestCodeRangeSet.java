@@ -0,0 +1,80 @@
+package org.jcodings;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.jcodings.specific.UTF8Encoding;
+import org.jcodings.unicode.UnicodeCodeRange;
+import org.junit.Test;
+
+public class TestCodeRangeSet {
+    private static final int UNIVERSE = 200;
+
+    private static int[] random(Random random) {
+        int n = random.nextInt(6);
+        int[]ranges = new int[2 * n + 1];
+        ranges[0] = n;
+        for (int i = 0; i < n; i++) {
+            int from = random.nextInt(UNIVERSE);
+            ranges[2 * i + 1] = from;
+            ranges[2 * i + 2] = Math.min(UNIVERSE - 1, from + random.nextInt(20));
+        }
+        return ranges;
+    }
+
+    private static BitSet bits(int[]ranges) {
+        BitSet bits = new BitSet();
+        for (int i = 0; i < ranges[0]; i++) bits.set(ranges[2 * i + 1], ranges[2 * i + 2] + 1);
+        return bits;
+    }
+
+    private static void check(BitSet expected, CodeRangeSet set) {
+        for (int code = 0; code < UNIVERSE + 10; code++) assertEquals(expected.get(code), set.contains(code));
+        for (int i = 1; i < set.size(); i++) assertTrue(set.from(i) > set.to(i - 1) + 1);
+    }
+
+    @Test
+    public void testOperations() throws Exception {
+        Random random = new Random(42);
+        for (int t = 0; t < 2000; t++) {
+            int[]a = random(random), b = random(random);
+            CodeRangeSet sa = CodeRangeSet.of(a), sb = CodeRangeSet.of(b);
+            check(bits(a), sa);
+
+            BitSet union = bits(a);
+            union.or(bits(b));
+            check(union, sa.union(sb));
+
+            BitSet intersection = bits(a);
+            intersection.and(bits(b));
+            check(intersection, sa.intersect(sb));
+
+            BitSet difference = bits(a);
+            difference.andNot(bits(b));
+            check(difference, sa.subtract(sb));
+
+            BitSet complement = bits(a);
+            complement.flip(0, UNIVERSE + 10);
+            check(complement, sa.complement());
+            assertEquals(sa, sa.complement().complement());
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Encoding enc = UTF8Encoding.INSTANCE;
+        IntHolder sbOut = new IntHolder();
+        CodeRangeSet letters = CodeRangeSet.of(enc.ctypeCodeRange(UnicodeCodeRange.L.ordinal(), sbOut));
+        CodeRangeSet upper = CodeRangeSet.of(enc.ctypeCodeRange(UnicodeCodeRange.LU.ordinal(), sbOut));
+        CodeRangeSet lowerish = letters.intersect(upper.complement());
+        CodeRangeSet again = CodeRangeSet.of(enc.ctypeCodeRange(UnicodeCodeRange.L.ordinal(), sbOut)).
+                intersect(CodeRangeSet.of(enc.ctypeCodeRange(UnicodeCodeRange.LU.ordinal(), sbOut)).complement());
+        assertSame(lowerish, again);
+        assertTrue(lowerish.contains('a') && !lowerish.contains('A') && lowerish.contains(0x5d0));
+        assertEquals(letters.subtract(upper), lowerish);
+    }
+}
@@ -0,0 +1,37 @@
+package org.jcodings;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class TestPreloader {
+    @Test
+    public void testPreload() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Preloader.Result> results = new Preloader().
+                    addEncoding("Shift_JIS").
+                    addEncoding("CP932").
+                    addTranscoder("UTF-8", "EUC-JP").
+                    addTranscoder("Shift_JIS", "UTF-16LE").
+                    addUnicodeProperty("Hiragana").
+                    addUnicodeCaseTables().
+                    addEncoding("NoSuchEncoding").
+                    preload(executor);
+
+            assertEquals(11, results.size());
+            for (int i = 0; i < results.size() - 1; i++) {
+                assertNull(results.get(i).toString(), results.get(i).getError());
+            }
+            assertNotNull(results.get(results.size() - 1).getError());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.jcodings.specific;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import org.jcodings.CaseFoldCodeBuffer;
+import org.jcodings.Config;
+import org.jcodings.Encoding;
+import org.jcodings.EncodingDB;
+import org.jcodings.IntHolder;
+import org.jcodings.Ptr;
+import org.jcodings.constants.CharacterType;
+import org.jcodings.transcode.EConv;
+import org.jcodings.transcode.EConvFlags;
+import org.jcodings.transcode.EConvResult;
+import org.jcodings.transcode.TranscoderDB;
+import org.jcodings.unicode.UnicodeEncoding;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Guards the allocation free paths: after warmup, {@link Encoding#length}, {@link Encoding#mbcToCode}, {@link Encoding#caseMap},
+ * {@link Encoding#mbcCaseFold}, {@link Encoding#isCodeCType} and, for Unicode encodings, {@link Encoding#propertyNameToCType}
+ * and multi character {@link Encoding#caseFoldCodesByString(int, byte[], int, int, CaseFoldCodeBuffer)} on valid input, and {@link EConv#convert} in steady state, must not allocate. Measured with <code>com.sun.management.ThreadMXBean</code>, skipped on VMs without it.
+ */
+public class TestAllocation {
+    private static final int WARMUP = 5000;
+    private static final int OPS = 2000;
+    private static final int ROUNDS = 5;
+
+    private static Object threads;
+    private static Method allocatedBytes;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        try {
+            Class<?> bean = Class.forName("com.sun.management.ThreadMXBean");
+            Object mxBean = ManagementFactory.getThreadMXBean();
+            if (!bean.isInstance(mxBean)) return;
+            Method method = bean.getMethod("getThreadAllocatedBytes", long.class);
+            if ((Long)method.invoke(mxBean, Thread.currentThread().getId()) < 0) return;
+            threads = mxBean;
+            allocatedBytes = method;
+        } catch (ClassNotFoundException e) {
+            // not a HotSpot based VM
+        }
+    }
+
+    private static long allocated() throws Exception {
+        return (Long)allocatedBytes.invoke(threads, Thread.currentThread().getId());
+    }
+
+    private static abstract class Operation {
+        abstract void run() throws Exception;
+    }
+
+    /**
+     * Smallest number of bytes allocated by <code>OPS</code> runs over several rounds, less the cost of measuring
+     */
+    private static long allocatedBy(Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) operation.run();
+        long min = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = allocated();
+            long start = allocated();
+            for (int i = 0; i < OPS; i++) operation.run();
+            long end = allocated();
+            min = Math.min(min, (end - start) - (start - before));
+        }
+        return Math.max(min, 0);
+    }
+
+    private static void assertNoAllocation(String what, Operation operation) throws Exception {
+        assertEquals(what, 0, allocatedBy(operation) / OPS);
+    }
+
+    /**
+     * ASCII letters followed by the first non ASCII character the encoding can represent
+     */
+    private static int sample(Encoding enc, byte[] bytes) {
+        int p = 0;
+        for (char c : "aZ".toCharArray()) p += enc.codeToMbc(c, bytes, p);
+        for (int code = 0xc0; code < 0x10000; code++) {
+            try {
+                int length = enc.codeToMbc(code, bytes, p);
+                if (length > 0 && enc.length(bytes, p, p + length) == length && enc.mbcToCode(bytes, p, p + length) == code) return p + length;
+            } catch (Exception e) {
+                // not representable
+            }
+        }
+        return p;
+    }
+
+    @Test
+    public void testEncodings() throws Exception {
+        Assume.assumeTrue(allocatedBytes != null);
+        for (EncodingDB.Entry entry : EncodingDB.getEncodings()) {
+            if (entry.isDummy()) continue;
+            final Encoding enc = entry.getEncoding();
+            final byte[] bytes = new byte[32];
+            final int end = sample(enc, bytes);
+            final byte[] to = new byte[64];
+            final IntHolder flagP = new IntHolder();
+            final IntHolder pp = new IntHolder();
+            final int[] sink = new int[1];
+
+            assertNoAllocation(enc + " length/mbcToCode", new Operation() {
+                void run() {
+                    for (int p = 0; p < end; p += enc.length(bytes, p, end)) sink[0] += enc.mbcToCode(bytes, p, end);
+                }
+            });
+            assertNoAllocation(enc + " caseMap", new Operation() {
+                void run() {
+                    flagP.value = Config.CASE_UPCASE | Config.CASE_DOWNCASE;
+                    pp.value = 0;
+                    sink[0] += enc.caseMap(flagP, bytes, pp, end, to, 0, to.length);
+                }
+            });
+            assertNoAllocation(enc + " mbcCaseFold", new Operation() {
+                void run() {
+                    pp.value = 0;
+                    while (pp.value < end) sink[0] += enc.mbcCaseFold(Config.ENC_CASE_FOLD_DEFAULT, bytes, pp, end, to);
+                }
+            });
+            assertNoAllocation(enc + " isCodeCType", new Operation() {
+                void run() {
+                    for (int p = 0; p < end; p += enc.length(bytes, p, end)) {
+                        int code = enc.mbcToCode(bytes, p, end);
+                        for (int ctype = 0; ctype <= CharacterType.MAX_STD_CTYPE; ctype++) if (enc.isCodeCType(code, ctype)) sink[0]++;
+                    }
+                }
+            });
+
+            if (enc instanceof UnicodeEncoding) {
+                final byte[] name = new byte[64];
+                int p = 0;
+                for (char c : "In_Basic Latin".toCharArray()) p += enc.codeToMbc(c, name, p);
+                final int nameEnd = p;
+                assertNoAllocation(enc + " propertyNameToCType", new Operation() {
+                    void run() {
+                        sink[0] += enc.propertyNameToCType(name, 0, nameEnd);
+                    }
+                });
+
+                final byte[] sharpS = new byte[8];
+                final int sharpSEnd = enc.codeToMbc(0xdf, sharpS, 0); // folds to "ss"
+                final CaseFoldCodeBuffer buffer = new CaseFoldCodeBuffer();
+                assertNoAllocation(enc + " caseFoldCodesByString", new Operation() {
+                    void run() {
+                        sink[0] += enc.caseFoldCodesByString(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR, sharpS, 0, sharpSEnd, buffer);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testEConv() throws Exception {
+        Assume.assumeTrue(allocatedBytes != null);
+        String[][] pairs = {{"UTF-8", "UTF-16LE"}, {"UTF-8", "EUC-JP"}, {"Shift_JIS", "UTF-8"}, {"ISO-8859-1", "UTF-8"}};
+        for (String[] pair : pairs) {
+            final EConv econv = TranscoderDB.open(pair[0], pair[1], EConvFlags.UNIVERSAL_NEWLINE_DECORATOR);
+            final byte[] in = "text\r\né日本".getBytes(pair[0].equals("UTF-8") ? "UTF-8" : pair[0]);
+            final byte[] out = new byte[256];
+            final Ptr inPtr = new Ptr();
+            final Ptr outPtr = new Ptr();
+
+            assertNoAllocation(pair[0] + " => " + pair[1], new Operation() {
+                void run() {
+                    inPtr.p = 0;
+                    outPtr.p = 0;
+                    EConvResult result = econv.convert(in, inPtr, in.length, out, outPtr, out.length, EConvFlags.PARTIAL_INPUT);
+                    if (!result.isSourceBufferEmpty()) throw new AssertionError(result);
+                }
+            });
+        }
+    }
+}
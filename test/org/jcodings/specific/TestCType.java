@@ -0,0 +1,74 @@
+package org.jcodings.specific;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.jcodings.Encoding;
+import org.jcodings.EncodingDB;
+import org.jcodings.constants.CharacterType;
+import org.jcodings.unicode.UnicodeCodeRange;
+import org.jcodings.unicode.UnicodeEncoding;
+import org.junit.Test;
+
+public class TestCType {
+    private static int span(Encoding enc, byte[]bytes, int p, int end, int ctype) {
+        while (p < end) {
+            int length = enc.length(bytes, p, end);
+            if (length <= 0 || p + length > end || !enc.isCodeCType(enc.mbcToCode(bytes, p, p + length), ctype)) return p;
+            p += length;
+        }
+        return p;
+    }
+
+    private static int find(Encoding enc, byte[]bytes, int p, int end, int ctype) {
+        while (p < end) {
+            int length = enc.length(bytes, p, end);
+            if (length <= 0 || p + length > end) {
+                p += enc.minLength();
+            } else {
+                if (enc.isCodeCType(enc.mbcToCode(bytes, p, p + length), ctype)) return p;
+                p += length;
+            }
+        }
+        return end;
+    }
+
+    @Test
+    public void testSpanAndFind() throws Exception {
+        Random random = new Random(7);
+        int[]properties = {UnicodeCodeRange.GREEK.ordinal(), UnicodeCodeRange.HAN.ordinal(), UnicodeCodeRange.EMOJI.ordinal()};
+        for (EncodingDB.Entry entry : EncodingDB.getEncodings()) {
+            if (entry.isDummy()) continue;
+            Encoding enc = entry.getEncoding();
+            for (int i = 0; i < 300; i++) {
+                byte[]bytes = new byte[random.nextInt(24)];
+                for (int j = 0; j < bytes.length; j++) bytes[j] = (byte)(random.nextInt(3) == 0 ? random.nextInt(256) : 'a' + random.nextInt(40) - 8);
+                int p = bytes.length > 0 ? random.nextInt(bytes.length) : 0;
+                for (int ctype = 0; ctype <= CharacterType.MAX_STD_CTYPE; ctype++) {
+                    assertEquals(enc + " " + ctype, span(enc, bytes, p, bytes.length, ctype), enc.spanCType(bytes, p, bytes.length, ctype));
+                    assertEquals(enc + " " + ctype, find(enc, bytes, p, bytes.length, ctype), enc.findCType(bytes, p, bytes.length, ctype));
+                }
+                if (enc instanceof UnicodeEncoding) {
+                    for (int ctype : properties) {
+                        assertEquals(enc + " " + ctype, span(enc, bytes, p, bytes.length, ctype), enc.spanCType(bytes, p, bytes.length, ctype));
+                        assertEquals(enc + " " + ctype, find(enc, bytes, p, bytes.length, ctype), enc.findCType(bytes, p, bytes.length, ctype));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnicodeText() throws Exception {
+        byte[]bytes = " \t\u00a0Stra\u00dfe \u03b1\u03b2\u03b3 \u65e5\u672c!".getBytes("UTF-8");
+        Encoding enc = UTF8Encoding.INSTANCE;
+        assertEquals(4, enc.spanCType(bytes, 0, bytes.length, CharacterType.SPACE));
+        assertEquals(11, enc.spanCType(bytes, 4, bytes.length, CharacterType.ALPHA));
+        assertEquals(12, enc.findCType(bytes, 4, bytes.length, UnicodeCodeRange.GREEK.ordinal()));
+        assertEquals(18, enc.spanCType(bytes, 12, bytes.length, UnicodeCodeRange.GREEK.ordinal()));
+        assertEquals(25, enc.findCType(bytes, 0, bytes.length, CharacterType.PUNCT));
+        assertEquals(1, enc.findCType(bytes, 0, bytes.length, CharacterType.CNTRL));
+        assertEquals(bytes.length, enc.findCType(bytes, 2, bytes.length, CharacterType.CNTRL));
+    }
+}
@@ -1,7 +1,9 @@
 package org.jcodings.specific;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 
@@ -79,6 +81,8 @@ public class TestCaseMap {
         for (Encoding enc: list) {
             assertTrue(caseMap(enc, "ß", Config.CASE_UPCASE).equals("SS"));
             assertTrue(caseMap(enc, "ß", Config.CASE_DOWNCASE).equals("ß"));
+            assertTrue(caseMap(enc, "straße und ÄÖÜ", Config.CASE_UPCASE).equals("STRASSE UND ÄÖÜ"));
+            assertTrue(caseMap(enc, "ßtraße", Config.CASE_UPCASE | Config.CASE_TITLECASE).equals("Sstraße"));
         }
     }
 
@@ -94,4 +98,79 @@ public class TestCaseMap {
         assertTrue(caseMap(enc, "\u10D0\u10D1\u1C92", Config.CASE_UPCASE | Config.CASE_TITLECASE).equals("\u10D0\u10D1\u10D2"));
         assertTrue(caseMap(enc, "\u10D0\u10D1\u10D2", Config.CASE_UPCASE | Config.CASE_TITLECASE).equals("\u10D0\u10D1\u10D2"));
     }
+
+    @Test
+    public void testAsciiRuns() throws Exception {
+        Encoding enc = UTF8Encoding.INSTANCE;
+        assertTrue(caseMap(enc, "hello world, hello ÄÖÜ and more text", Config.CASE_UPCASE).equals("HELLO WORLD, HELLO ÄÖÜ AND MORE TEXT"));
+        assertTrue(caseMap(enc, "already lower äöü text", Config.CASE_DOWNCASE).equals("already lower äöü text"));
+        assertTrue(caseMap(enc, "kid", Config.CASE_UPCASE | Config.CASE_FOLD_TURKISH_AZERI).equals("K\u0130D"));
+        assertTrue(caseMap(enc, "KID", Config.CASE_DOWNCASE | Config.CASE_FOLD_TURKISH_AZERI).equals("k\u0131d"));
+        assertTrue(caseMap(enc, "hello", Config.CASE_UPCASE | Config.CASE_TITLECASE).equals("Hello"));
+    }
+
+    @Test
+    public void testCaseMapSpan() throws Exception {
+        List<Encoding> list = Arrays.<Encoding>asList(UTF8Encoding.INSTANCE, UTF16LEEncoding.INSTANCE, ISO8859_1Encoding.INSTANCE, ASCIIEncoding.INSTANCE);
+        String[]strings = {"", "abc", "ABC", "abc DEF", "\u00e4\u00f6\u00fc", "x\u00c4y", "\u0130", "\u0131", "\u00df", "\u01c5", "123 !?"};
+        int[]flags = {Config.CASE_UPCASE, Config.CASE_DOWNCASE, Config.CASE_FOLD, Config.CASE_UPCASE | Config.CASE_DOWNCASE,
+                Config.CASE_UPCASE | Config.CASE_TITLECASE, Config.CASE_UPCASE | Config.CASE_ASCII_ONLY};
+        for (Encoding enc : list) {
+            String charset = enc.getCharsetName();
+            for (String str : strings) {
+                if (!enc.isUnicode() && !str.matches("[\\x00-\\xff]*")) continue;
+                if (enc == ASCIIEncoding.INSTANCE && !str.matches("[\\x00-\\x7f]*")) continue;
+                byte[]bytes = str.getBytes(charset == null ? "ISO-8859-1" : charset);
+                for (int flag : flags) {
+                    int span = enc.caseMapSpan(flag, bytes, 0, bytes.length);
+                    assertTrue(!modified(enc, bytes, span, flag));
+                    if (span < bytes.length) assertTrue(modified(enc, bytes, span + enc.length(bytes, span, bytes.length), flag));
+                }
+            }
+        }
+        assertEquals(3, UTF8Encoding.INSTANCE.caseMapSpan(Config.CASE_UPCASE, "AB-cd".getBytes("UTF-8"), 0, 5));
+    }
+
+    private boolean modified(Encoding enc, byte[]bytes, int end, int flags) {
+        IntHolder flagP = new IntHolder();
+        flagP.value = flags;
+        IntHolder pp = new IntHolder();
+        byte[]to = new byte[end * 3 + 20];
+        enc.caseMap(flagP, bytes, pp, end, to, 0, to.length);
+        return (flagP.value & Config.CASE_MODIFIED) != 0;
+    }
+
+    @Test
+    public void testCaseMapLength() throws Exception {
+        String[]strings = {"", "abc", "Stra\u00dfe", "\u00df\u00df\u00df", "\u0130stanbul", "\ufb03 \u0149 \u1f80", "\u01c4\u01c6", "\u65e5\u672c\u8a9e text"};
+        int[]flags = {Config.CASE_UPCASE, Config.CASE_DOWNCASE, Config.CASE_FOLD, Config.CASE_UPCASE | Config.CASE_DOWNCASE,
+                Config.CASE_UPCASE | Config.CASE_TITLECASE, Config.CASE_DOWNCASE | Config.CASE_FOLD_TURKISH_AZERI};
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 500; i++) large.append(strings[i % strings.length]);
+        for (EncodingDB.Entry entry : EncodingDB.getEncodings()) {
+            Encoding enc = entry.getEncoding();
+            Charset charset;
+            try {
+                charset = enc.getCharset();
+            } catch (Exception e) {
+                continue;
+            }
+            if (charset == null || !charset.canEncode()) continue;
+            for (String str : strings) check(enc, charset, str, flags);
+            check(enc, charset, large.toString(), flags);
+        }
+    }
+
+    private void check(Encoding enc, Charset charset, String str, int[]flags) {
+        if (!charset.newEncoder().canEncode(str)) return;
+        byte[]bytes = str.getBytes(charset);
+        for (int flag : flags) {
+            IntHolder flagP = new IntHolder();
+            flagP.value = flag;
+            IntHolder pp = new IntHolder();
+            byte[]to = new byte[bytes.length * 3 + 20];
+            int len = enc.caseMap(flagP, bytes, pp, bytes.length, to, 0, to.length);
+            assertEquals(enc + " " + str, len, enc.caseMapLength(flag, bytes, 0, bytes.length));
+        }
+    }
 }
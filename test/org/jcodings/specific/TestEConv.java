@@ -1,12 +1,16 @@
 package org.jcodings.specific;
 
+import java.io.File;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Arrays;
 
 import org.jcodings.Ptr;
 import org.jcodings.transcode.EConv;
 import org.jcodings.transcode.EConvFlags;
 import org.jcodings.transcode.EConvResult;
+import org.jcodings.transcode.EConvStats;
+import org.jcodings.transcode.Transcoder;
 import org.jcodings.transcode.TranscoderDB;
 import org.junit.Assert;
 import org.junit.Test;
@@ -27,6 +31,58 @@ public class TestEConv {
         Assert.assertArrayEquals("foo".getBytes("UTF-16"), dest);
     }
 
+    @Test
+    public void testListener() throws Exception {
+        EConvStats stats = new EConvStats();
+        byte[] src = "a\u00e9\u20acb".getBytes("UTF-8");
+        byte[] dest = new byte[32];
+
+        EConv econv = TranscoderDB.open("UTF-8", "ISO-8859-1", EConvFlags.UNDEF_REPLACE);
+        Assert.assertNull(econv.getListener());
+        econv.setListener(stats);
+        Ptr outPtr = new Ptr(0);
+        Assert.assertEquals(EConvResult.Finished, econv.convert(src, new Ptr(0), src.length, dest, outPtr, dest.length, 0));
+        Assert.assertEquals("a\u00e9?b", new String(dest, 0, outPtr.p, "ISO-8859-1"));
+
+        EConvStats.Counters counters = stats.get("UTF-8".getBytes(), "ISO-8859-1".getBytes());
+        Assert.assertEquals(1, counters.getConversions());
+        Assert.assertEquals(src.length, counters.getBytesIn());
+        Assert.assertEquals(outPtr.p, counters.getBytesOut());
+        Assert.assertEquals(1, counters.getUndefinedConversions());
+        Assert.assertEquals(1, counters.getReplacements());
+        Assert.assertEquals(0, counters.getCycles()); // never suspended in the middle of a character
+
+        econv = TranscoderDB.open("UTF-8", "UTF-16LE", 0);
+        econv.setListener(stats);
+        Ptr inPtr = new Ptr(0);
+        outPtr = new Ptr(0);
+        Assert.assertEquals(EConvResult.SourceBufferEmpty, econv.convert(src, inPtr, 2, dest, outPtr, dest.length, EConvFlags.PARTIAL_INPUT));
+        long cycles = stats.get("UTF-8".getBytes(), "UTF-16LE".getBytes()).getCycles();
+        Assert.assertEquals(EConvResult.Finished, econv.convert(src, inPtr, src.length, dest, outPtr, dest.length, 0));
+        Assert.assertEquals(cycles + 1, stats.get("UTF-8".getBytes(), "UTF-16LE".getBytes()).getCycles()); // resumed inside the \u00e9
+
+        TranscoderDB.setDefaultListener(stats);
+        try {
+            econv = TranscoderDB.open("UTF-8", "ISO-8859-1", EConvFlags.UNDEF_HEX_CHARREF);
+            outPtr = new Ptr(0);
+            econv.convert(src, new Ptr(0), src.length, dest, outPtr, dest.length, 0);
+            Assert.assertEquals("a\u00e9&#x20AC;b", new String(dest, 0, outPtr.p, "ISO-8859-1"));
+            byte[] invalid = {'a', (byte)0xff, 'b'};
+            econv = TranscoderDB.open("UTF-8", "ISO-8859-1", 0);
+            Assert.assertEquals(EConvResult.InvalidByteSequence, econv.convert(invalid, new Ptr(0), invalid.length, dest, new Ptr(0), dest.length, 0));
+        } finally {
+            TranscoderDB.setDefaultListener(null);
+        }
+        Assert.assertEquals(3, counters.getConversions());
+        Assert.assertEquals(1, counters.getHexCharrefs());
+        Assert.assertEquals(2, counters.getUndefinedConversions());
+        Assert.assertEquals(1, counters.getInvalidByteSequences());
+        Assert.assertEquals(2, stats.getAll().size());
+
+        stats.reset();
+        Assert.assertEquals(0, counters.getConversions());
+    }
+
     @Test
     public void testUniversalNewline() throws Exception {
         EConv econv = TranscoderDB.open("".getBytes(), "".getBytes(), EConvFlags.UNIVERSAL_NEWLINE_DECORATOR);
@@ -119,4 +175,26 @@ public class TestEConv {
         UTF8 = utf8;
         ISO2022_JP = iso2022_jp;
     }
+
+    @Test
+    public void testMappedTables() throws Exception {
+        TranscoderDB.open("EUC-KR", "UTF-8", 0); // tables already on the heap get mapped once the directory is set
+        File dir = Files.createTempDirectory("jcodings").toFile();
+        Transcoder.setMappedTableDirectory(dir);
+        try {
+            EConv econv = TranscoderDB.open("EUC-KR", "UTF-8", 0);
+            byte[] src = "\ud55c\uad6d\uc5b4 text".getBytes("EUC-KR");
+            byte[] dest = new byte[64];
+            Ptr destP = new Ptr(0);
+
+            econv.convert(src, new Ptr(0), src.length, dest, destP, dest.length, 0);
+
+            Assert.assertArrayEquals("\ud55c\uad6d\uc5b4 text".getBytes("UTF-8"), Arrays.copyOf(dest, destP.p));
+            Assert.assertEquals(2, dir.list().length);
+        } finally {
+            Transcoder.setMappedTableDirectory(null);
+            for (File file : dir.listFiles()) file.delete();
+            dir.delete();
+        }
+    }
 }
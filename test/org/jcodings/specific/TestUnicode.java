@@ -1,15 +1,37 @@
 package org.jcodings.specific;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
+import org.jcodings.ApplyAllCaseFoldFunction;
+import org.jcodings.CaseFoldClosure;
+import org.jcodings.CaseFoldCodeBuffer;
+import org.jcodings.CaseFoldCodeItem;
+import org.jcodings.Config;
 import org.jcodings.Encoding;
 import org.jcodings.constants.CharacterType;
+import org.jcodings.exception.CharacterPropertyException;
+import org.jcodings.unicode.UnicodeCodeRange;
+import org.jcodings.util.Macros;
 import org.junit.Test;
 
 public class TestUnicode {
     final Encoding enc = UTF8Encoding.INSTANCE;
 
+    @Test
+    public void testUTF32TruncatedLength() throws Exception {
+        for (Encoding utf32 : new Encoding[] {UTF32BEEncoding.INSTANCE, UTF32LEEncoding.INSTANCE}) {
+            for (int n = 1; n < 4; n++) {
+                int len = utf32.length(new byte[8], 4, 4 + n);
+                assertTrue(Macros.MBCLEN_NEEDMORE_P(len));
+                assertEquals(4 - n, Macros.MBCLEN_NEEDMORE_LEN(len));
+            }
+            assertEquals(4, utf32.length(new byte[8], 4, 8));
+        }
+    }
+
     @Test
     public void testUnicodeLength() throws Exception {
         byte[] utf8Bytes = "mØØse".getBytes("UTF-8");
@@ -50,4 +72,103 @@ public class TestUnicode {
     public void testEncodingLoad() throws Exception {
         assertEquals(UTF8Encoding.INSTANCE, Encoding.load("UTF8"));
     }
+
+    @Test
+    public void testCaseFoldCodesByStringBuffer() throws Exception {
+        CaseFoldCodeBuffer buffer = new CaseFoldCodeBuffer();
+        for (String str : new String[] {"ss", "\u00df", "k", "\u0130", "-", "ffi"}) {
+            byte[]bytes = str.getBytes("UTF-8");
+            CaseFoldCodeItem[]items = enc.caseFoldCodesByString(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR, bytes, 0, bytes.length);
+            assertEquals(items.length, enc.caseFoldCodesByString(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR, bytes, 0, bytes.length, buffer));
+            for (int i = 0; i < items.length; i++) {
+                assertEquals(items[i].byteLen, buffer.byteLength(i));
+                assertEquals(items[i].code.length, buffer.codeLength(i));
+                for (int j = 0; j < items[i].code.length; j++) assertEquals(items[i].code[j], buffer.code(i, j));
+            }
+        }
+
+        byte[]ss = "ss".getBytes("UTF-8");
+        enc.caseFoldCodesByString(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR, ss, 0, ss.length, buffer);
+        boolean sharpS = false;
+        for (int i = 0; i < buffer.size(); i++) sharpS |= buffer.byteLength(i) == 2 && buffer.code(i, 0) == 0xdf;
+        assertTrue(sharpS);
+    }
+
+    @Test
+    public void testCaseFoldClosure() throws Exception {
+        CaseFoldClosure closure = enc.caseFoldClosure(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR);
+        assertSame(closure, UTF16LEEncoding.INSTANCE.caseFoldClosure(Config.INTERNAL_ENC_CASE_FOLD_MULTI_CHAR));
+
+        final CaseFoldClosure expected = CaseFoldClosure.collect(ISO8859_1Encoding.INSTANCE, 0);
+        final int[]n = new int[1];
+        ISO8859_1Encoding.INSTANCE.applyAllCaseFold(0, new ApplyAllCaseFoldFunction() {
+            public void apply(int c, int[] codes, int length, Object arg) {
+                assertEquals(expected.from(n[0]), c);
+                assertEquals(expected.length(n[0]), length);
+                for (int i = 0; i < length; i++) assertEquals(expected.to(n[0], i), codes[i]);
+                n[0]++;
+            }
+        }, null);
+        assertEquals(expected.size(), n[0]);
+        assertSame(ISO8859_1Encoding.INSTANCE.caseFoldClosure(0), ISO8859_1Encoding.INSTANCE.caseFoldClosure(0));
+        assertTrue(closure.size() > expected.size());
+    }
+
+    @Test
+    public void testCaseFoldCompare() throws Exception {
+        String[][]equal = {{"", ""}, {"Content-Type", "content-type"}, {"Stra\u00dfe", "STRASSE"}, {"\u1e9e", "ss"},
+                {"\u00c4\u00d6\u00dc", "\u00e4\u00f6\u00fc"}, {"\u212a", "k"}, {"\ufb03", "FFI"}};
+        String[][]different = {{"abc", "abd"}, {"abc", "ab"}, {"", "a"}, {"\u00df", "s"}, {"\u00e4", "a"}};
+        for (Encoding enc : new Encoding[] {UTF8Encoding.INSTANCE, UTF16BEEncoding.INSTANCE}) {
+            String charset = enc.getCharsetName();
+            for (String[]pair : equal) {
+                byte[]a = pair[0].getBytes(charset), b = pair[1].getBytes(charset);
+                assertEquals(0, enc.caseFoldCompare(Config.ENC_CASE_FOLD_DEFAULT, a, 0, a.length, b, 0, b.length));
+                assertEquals(enc.caseFoldHash(Config.ENC_CASE_FOLD_DEFAULT, a, 0, a.length), enc.caseFoldHash(Config.ENC_CASE_FOLD_DEFAULT, b, 0, b.length));
+            }
+            for (String[]pair : different) {
+                byte[]a = pair[0].getBytes(charset), b = pair[1].getBytes(charset);
+                int cmp = enc.caseFoldCompare(Config.ENC_CASE_FOLD_DEFAULT, a, 0, a.length, b, 0, b.length);
+                assertTrue(cmp != 0);
+                assertEquals(-cmp, enc.caseFoldCompare(Config.ENC_CASE_FOLD_DEFAULT, b, 0, b.length, a, 0, a.length));
+            }
+        }
+
+        Encoding enc = ISO8859_1Encoding.INSTANCE;
+        byte[]a = "\u00c4RGER".getBytes("ISO-8859-1"), b = "\u00e4rger".getBytes("ISO-8859-1");
+        assertEquals(0, enc.caseFoldCompare(Config.ENC_CASE_FOLD_DEFAULT, a, 0, a.length, b, 0, b.length));
+        assertEquals(enc.caseFoldHash(Config.ENC_CASE_FOLD_DEFAULT, a, 0, a.length), enc.caseFoldHash(Config.ENC_CASE_FOLD_DEFAULT, b, 0, b.length));
+    }
+
+    @Test
+    public void testPropertyNames() throws Exception {
+        for (UnicodeCodeRange range : UnicodeCodeRange.values()) {
+            if (range.name().indexOf('_') != -1) continue;
+            byte[]name = range.name().getBytes();
+            assertEquals(range.ordinal(), enc.propertyNameToCType(name, 0, name.length));
+        }
+        byte[]name = "Age=6.0".getBytes();
+        assertEquals(UnicodeCodeRange.AGE_6_0.ordinal(), enc.propertyNameToCType(name, 0, name.length));
+        name = "In_Basic Latin".getBytes();
+        assertEquals(UnicodeCodeRange.INBASICLATIN.ordinal(), enc.propertyNameToCType(name, 0, name.length));
+        name = "\000H\000i\000r\000a\000g\000a\000n\000a".getBytes("ISO-8859-1");
+        assertEquals(UnicodeCodeRange.HIRAGANA.ordinal(), UTF16BEEncoding.INSTANCE.propertyNameToCType(name, 0, name.length));
+
+        for (String unknown : new String[] {"", "alph", "alphaa", "nosuchproperty", "\u00e4lpha"}) {
+            name = unknown.getBytes("UTF-8");
+            try {
+                enc.propertyNameToCType(name, 0, name.length);
+                fail(unknown);
+            } catch (CharacterPropertyException e) {
+            }
+        }
+
+        for (byte[]invalid : new byte[][] {{'L', (byte)0xff}, {(byte)0x80}, {'L', (byte)0xe3, (byte)0x81}}) {
+            try {
+                enc.propertyNameToCType(invalid, 0, invalid.length);
+                fail();
+            } catch (CharacterPropertyException e) {
+            }
+        }
+    }
 }
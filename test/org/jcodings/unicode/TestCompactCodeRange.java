@@ -0,0 +1,31 @@
+package org.jcodings.unicode;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import org.jcodings.CodeRange;
+import org.junit.Test;
+
+public class TestCompactCodeRange {
+    @Test
+    public void testContains() throws Exception {
+        int single = 0, bmp = 0, wide = 0;
+        for (UnicodeCodeRange range : UnicodeCodeRange.values()) {
+            int[]ranges = range.getRange();
+            CompactCodeRange compact = CompactCodeRange.of(ranges);
+            if (compact instanceof CompactCodeRange.Single) single++;
+            if (compact instanceof CompactCodeRange.Bmp) bmp++;
+            if (compact instanceof CompactCodeRange.Wide) wide++;
+            for (int i = 0; i < ranges[0]; i++) {
+                int from = ranges[2 * i + 1], to = ranges[2 * i + 2];
+                for (int code : new int[] {from - 1, from, (from + to) >>> 1, to, to + 1}) {
+                    assertEquals(range + " " + code, CodeRange.isInCodeRange(ranges, code), compact.contains(code));
+                    assertEquals(range + " " + code, CodeRange.isInCodeRange(ranges, code), range.contains(code));
+                }
+            }
+            assertEquals(CodeRange.isInCodeRange(ranges, 0x10000), compact.contains(0x10000));
+            assertEquals(CodeRange.isInCodeRange(ranges, 0x10ffff), compact.contains(0x10ffff));
+        }
+        assertTrue(single > 0 && bmp > 0 && wide > 0);
+    }
+}
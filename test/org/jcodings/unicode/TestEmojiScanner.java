@@ -0,0 +1,48 @@
+package org.jcodings.unicode;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcodings.IntHolder;
+import org.jcodings.specific.UTF16BEEncoding;
+import org.jcodings.specific.UTF32LEEncoding;
+import org.jcodings.specific.UTF8Encoding;
+import org.junit.Test;
+
+public class TestEmojiScanner {
+    private static List<String> scan(UnicodeEncoding enc, String charset, String str) throws Exception {
+        EmojiScanner scanner = new EmojiScanner(enc);
+        byte[]bytes = str.getBytes(charset);
+        List<String> sequences = new ArrayList<String>();
+        IntHolder pp = new IntHolder();
+        int end;
+        while ((end = scanner.next(bytes, pp, bytes.length)) != -1) {
+            sequences.add(new String(bytes, pp.value, end - pp.value, charset));
+            pp.value = end;
+        }
+        return sequences;
+    }
+
+    private static void check(String str, String... expected) throws Exception {
+        assertEquals(Arrays.asList(expected), scan(UTF8Encoding.INSTANCE, "UTF-8", str));
+        assertEquals(Arrays.asList(expected), scan(UTF16BEEncoding.INSTANCE, "UTF-16BE", str));
+        assertEquals(Arrays.asList(expected), scan(UTF32LEEncoding.INSTANCE, "UTF-32LE", str));
+    }
+
+    @Test
+    public void testSequences() throws Exception {
+        check("plain text 123 # (c) © ☺");
+        check("hi 😀!", "😀");
+        check("☺️ ©️", "☺️", "©️");
+        check("1️⃣ #⃣ 5", "1️⃣", "#⃣");
+        check("👍🏽👍", "👍🏽", "👍");
+        check("🇩🇪🇫", "🇩🇪");
+        check("👨‍👩‍👧.", "👨‍👩‍👧");
+        check("🏴󠁧󠁢󠁥󠁮󠁧󠁿 x",
+                "🏴󠁧󠁢󠁥󠁮󠁧󠁿");
+        check("😀‍a", "😀");
+    }
+}
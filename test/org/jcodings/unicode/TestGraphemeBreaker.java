@@ -0,0 +1,57 @@
+package org.jcodings.unicode;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jcodings.specific.UTF16LEEncoding;
+import org.jcodings.specific.UTF8Encoding;
+import org.junit.Test;
+
+public class TestGraphemeBreaker {
+    private static List<String> clusters(UnicodeEncoding enc, String charset, String str) throws Exception {
+        GraphemeBreaker breaker = new GraphemeBreaker(enc);
+        byte[]bytes = str.getBytes(charset);
+        List<String> clusters = new ArrayList<String>();
+        int p = 0;
+        while (p < bytes.length) {
+            int q = breaker.next(bytes, p, bytes.length);
+            clusters.add(new String(bytes, p, q - p, charset));
+            p = q;
+        }
+        return clusters;
+    }
+
+    private static void check(String... expected) throws Exception {
+        StringBuilder str = new StringBuilder();
+        for (String cluster : expected) str.append(cluster);
+        List<String> list = java.util.Arrays.asList(expected);
+        assertEquals(list, clusters(UTF8Encoding.INSTANCE, "UTF-8", str.toString()));
+        assertEquals(list, clusters(UTF16LEEncoding.INSTANCE, "UTF-16LE", str.toString()));
+    }
+
+    @Test
+    public void testRules() throws Exception {
+        check("a", "b", "c");
+        check("a", "\r\n", "b", "\n", "\r");
+        check("é", "x");                                  // combining mark
+        check("각", "각", "ᄀ");  // Hangul syllables
+        check("कि", "a");                             // spacing mark
+        check("؀a", "b");                                  // prepend
+        check("🇩🇪", "🇫🇷", "🇬");  // regional indicator pairs
+        check("👨‍👩‍👧", "!");                  // emoji ZWJ sequence
+        check("👍🏽", "a‍", "👨");                    // modifier, ZWJ without pictograph
+        check("́", "\r", "́");                         // controls break around extends
+    }
+
+    @Test
+    public void testIllFormed() throws Exception {
+        GraphemeBreaker breaker = new GraphemeBreaker(UTF8Encoding.INSTANCE);
+        byte[]bytes = {'a', (byte)0xff, (byte)0xcc, (byte)0x81};
+        assertEquals(1, breaker.next(bytes, 0, bytes.length));
+        assertEquals(2, breaker.next(bytes, 1, bytes.length));
+        assertEquals(4, breaker.next(bytes, 2, bytes.length));
+        assertEquals(4, breaker.next(bytes, 4, bytes.length));
+    }
+}
@@ -0,0 +1,45 @@
+package org.jcodings.unicode;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import org.jcodings.specific.UTF16LEEncoding;
+import org.jcodings.specific.UTF8Encoding;
+import org.junit.Test;
+
+public class TestScriptRunIterator {
+    private static String runs(UnicodeEncoding enc, String charset, String str) throws Exception {
+        byte[]bytes = str.getBytes(charset);
+        ScriptRunIterator runs = new ScriptRunIterator(enc).reset(bytes, 0, bytes.length);
+        StringBuilder result = new StringBuilder();
+        while (runs.next()) {
+            result.append(new String(bytes, runs.start(), runs.end() - runs.start(), charset)).append('|').append(runs.script()).append(' ');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testRuns() throws Exception {
+        String str = "Hello, 世界! Привет (мир) 123 ひらがなカタカナ";
+        String expected = "Hello, |LATIN 世界! |HAN Привет (мир) 123 |CYRILLIC ひらがな|HIRAGANA カタカナ|KATAKANA ";
+        assertEquals(expected, runs(UTF8Encoding.INSTANCE, "UTF-8", str));
+        assertEquals(expected, runs(UTF16LEEncoding.INSTANCE, "UTF-16LE", str));
+        assertEquals("123 !|COMMON ", runs(UTF8Encoding.INSTANCE, "UTF-8", "123 !"));
+        assertEquals("éa|LATIN ", runs(UTF8Encoding.INSTANCE, "UTF-8", "éa"));
+        assertEquals("", runs(UTF8Encoding.INSTANCE, "UTF-8", ""));
+    }
+
+    @Test
+    public void testScriptOf() throws Exception {
+        assertEquals(UnicodeCodeRange.LATIN, ScriptRunIterator.scriptOf('a'));
+        assertEquals(UnicodeCodeRange.GREEK, ScriptRunIterator.scriptOf(0x3b1));
+        assertEquals(UnicodeCodeRange.INHERITED, ScriptRunIterator.scriptOf(0x301));
+        assertEquals(UnicodeCodeRange.UNKNOWN, ScriptRunIterator.scriptOf(0x378));
+        for (int code = 0; code < 0x3000; code += 7) {
+            UnicodeCodeRange script = ScriptRunIterator.scriptOf(code);
+            assertTrue(script == UnicodeCodeRange.UNKNOWN || script.contains(code));
+        }
+        assertFalse(UnicodeCodeRange.LATIN.contains(0x3b1));
+    }
+}
@@ -0,0 +1,77 @@
+package org.jcodings.unicode;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.jcodings.CodeRange;
+import org.jcodings.CodeRangeSet;
+import org.jcodings.specific.UTF8Encoding;
+import org.junit.Test;
+
+public class TestUtf8Matcher {
+    @Test
+    public void testContains() throws Exception {
+        for (UnicodeCodeRange range : new UnicodeCodeRange[] {UnicodeCodeRange.ALPHA, UnicodeCodeRange.GREEK, UnicodeCodeRange.EMOJI, UnicodeCodeRange.ANY}) {
+            int[]ranges = range.getRange();
+            Utf8Matcher matcher = Utf8Matcher.compile(range);
+            for (int code = 0; code <= 0x10ffff; code++) {
+                assertEquals(CodeRange.isInCodeRange(ranges, code), matcher.contains(code));
+            }
+            assertFalse(matcher.contains(0x110000));
+        }
+    }
+
+    @Test
+    public void testMatchLength() throws Exception {
+        UTF8Encoding enc = UTF8Encoding.INSTANCE;
+        int[]ranges = UnicodeCodeRange.L.getRange();
+        Utf8Matcher matcher = Utf8Matcher.compile(ranges);
+        byte[]buf = new byte[4];
+        for (int code = 0; code <= 0x10ffff; code++) {
+            if (code >= 0xd800 && code < 0xe000) continue;
+            int length = enc.codeToMbc(code, buf, 0);
+            assertEquals(CodeRange.isInCodeRange(ranges, code) ? length : 0, matcher.matchLength(buf, 0, length));
+            if (length > 1) assertEquals(0, matcher.matchLength(buf, 0, length - 1));
+        }
+        Utf8Matcher any = Utf8Matcher.compile(CodeRangeSet.ALL);
+        assertEquals(0, any.matchLength(new byte[] {(byte)0xc0, (byte)0x80}, 0, 2));
+        assertEquals(0, any.matchLength(new byte[] {(byte)0xe0, (byte)0x80, (byte)0x80}, 0, 3));
+        assertEquals(0, any.matchLength(new byte[] {(byte)0xed, (byte)0xa0, (byte)0x80}, 0, 3));
+        assertEquals(0, any.matchLength(new byte[] {(byte)0xf4, (byte)0x90, (byte)0x80, (byte)0x80}, 0, 4));
+        assertEquals(0, any.matchLength(new byte[] {(byte)0xe3, (byte)0x41, (byte)0x80}, 0, 3));
+        assertEquals(0, any.matchLength(new byte[] {(byte)0x80}, 0, 1));
+    }
+
+    @Test
+    public void testSpanAndFind() throws Exception {
+        Utf8Matcher greek = Utf8Matcher.compile(UnicodeCodeRange.GREEK);
+        byte[]bytes = "αβγ abc δε".getBytes("UTF-8");
+        assertEquals(6, greek.span(bytes, 0, bytes.length));
+        assertEquals(11, greek.find(bytes, 6, bytes.length));
+        assertEquals(2, greek.find(bytes, 2, bytes.length));
+        assertEquals(15, greek.span(bytes, 11, bytes.length));
+        assertEquals(bytes.length, greek.find(bytes, 15, bytes.length));
+        assertEquals(0, greek.span(bytes, 0, 0));
+
+        Random random = new Random(42);
+        Utf8Matcher alpha = Utf8Matcher.compile(UnicodeCodeRange.ALPHA);
+        UTF8Encoding enc = UTF8Encoding.INSTANCE;
+        for (int i = 0; i < 200; i++) {
+            StringBuilder str = new StringBuilder();
+            for (int j = 0; j < 20; j++) str.appendCodePoint(random.nextBoolean() ? 'a' + random.nextInt(26) : random.nextInt(0x3000));
+            byte[]s = str.toString().replaceAll("[\\ud800-\\udfff]", "").getBytes("UTF-8");
+            int p = 0;
+            while (p < s.length && enc.isCodeCType(enc.mbcToCode(s, p, s.length), UnicodeCodeRange.ALPHA.ordinal())) p += enc.length(s, p, s.length);
+            assertEquals(p, alpha.span(s, 0, s.length));
+            p = 0;
+            while (p < s.length && !enc.isCodeCType(enc.mbcToCode(s, p, s.length), UnicodeCodeRange.ALPHA.ordinal())) p += enc.length(s, p, s.length);
+            assertEquals(p, alpha.find(s, 0, s.length));
+        }
+        assertTrue(alpha.find(new byte[] {(byte)0xff, (byte)0x80, 'x'}, 0, 3) == 2);
+        assertEquals(1, alpha.find(new byte[] {(byte)0xe3, 'a', 'b'}, 0, 3)); // a truncated lead byte is skipped alone
+        assertEquals(2, alpha.find(new byte[] {(byte)0xf0, (byte)0x90, 'a'}, 0, 3));
+    }
+}
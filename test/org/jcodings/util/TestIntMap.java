@@ -0,0 +1,36 @@
+package org.jcodings.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import org.junit.Test;
+
+public class TestIntMap {
+    @Test
+    public void testPutGet() throws Exception {
+        IntMap<Integer> map = new IntMap<Integer>();
+        for (int i = -1000; i < 1000; i++) assertNull(map.put(i * 64, i));
+        assertEquals(2000, map.size());
+        for (int i = -1000; i < 1000; i++) assertEquals(Integer.valueOf(i), map.get(i * 64));
+        assertNull(map.get(1));
+        assertEquals(Integer.valueOf(5), map.put(5 * 64, 50));
+        assertEquals(Integer.valueOf(50), map.get(5 * 64));
+        assertEquals(2000, map.size());
+    }
+
+    @Test
+    public void testBytesMap() throws Exception {
+        BytesMap<Integer> exact = new BytesMap<Integer>(false);
+        BytesMap<Integer> insensitive = new BytesMap<Integer>(true);
+        for (int i = 0; i < 500; i++) {
+            exact.put(("Name" + i).getBytes(), i);
+            insensitive.put(("Name" + i).getBytes(), i);
+        }
+        byte[]key = "xxNAME42xx".getBytes();
+        assertNull(exact.get(key, 2, 8));
+        assertEquals(Integer.valueOf(42), insensitive.get(key, 2, 8));
+        assertEquals(Integer.valueOf(42), exact.get("Name42".getBytes()));
+        assertNull(insensitive.get("Name".getBytes()));
+        assertEquals(500, insensitive.size());
+    }
+}
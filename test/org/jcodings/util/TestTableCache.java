@@ -0,0 +1,104 @@
+package org.jcodings.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestTableCache {
+    static class CountingHandle extends TableCache.Handle<int[]> {
+        int loads;
+
+        protected int[] load() {
+            loads++;
+            return new int[256];
+        }
+
+        protected long sizeOf(int[] table) {
+            return table.length << 2;
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        long budget = TableCache.getBudget();
+        TableCache.reset(); // tables loaded by other tests would take part in the eviction
+        try {
+            CountingHandle a = new CountingHandle();
+            CountingHandle b = new CountingHandle();
+            a.get();
+            b.get();
+            assertTrue(a.isResident() && b.isResident());
+
+            long evictions = TableCache.getEvictions();
+            TableCache.setBudget(TableCache.getResidentBytes() - 1024);
+            assertTrue(TableCache.getEvictions() > evictions);
+            assertFalse(a.isResident() && b.isResident());
+
+            CountingHandle demoted = a.isResident() ? b : a;
+            int[] table = demoted.get(); // recovered from the soft reference or reloaded
+            assertEquals(256, table.length);
+            assertTrue(demoted.loads >= 1 && demoted.loads <= 2);
+        } finally {
+            TableCache.setBudget(budget);
+        }
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        CountingHandle handle = new CountingHandle();
+        handle.get();
+        long residentBytes = TableCache.getResidentBytes();
+        handle.discard();
+        assertFalse(handle.isResident());
+        assertEquals(residentBytes - 1024, TableCache.getResidentBytes());
+        handle.get();
+        assertEquals(2, handle.loads);
+    }
+
+    @Test
+    public void testDiscardWhileLoading() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1), discarded = new CountDownLatch(1);
+        final String[] source = {"old"};
+        final TableCache.Handle<String> handle = new TableCache.Handle<String>() {
+            int loads;
+
+            protected String load() {
+                String value = source[0];
+                if (loads++ == 0) {
+                    loading.countDown();
+                    try {
+                        discarded.await();
+                    } catch (InterruptedException ie) {
+                        throw new RuntimeException(ie);
+                    }
+                }
+                return value;
+            }
+
+            protected long sizeOf(String table) {
+                return 0;
+            }
+        };
+
+        final AtomicReference<String> result = new AtomicReference<String>();
+        Thread reader = new Thread() {
+            public void run() {
+                result.set(handle.get());
+            }
+        };
+        reader.start();
+        loading.await();
+        source[0] = "new"; // like switching the mapped table directory
+        handle.discard();
+        discarded.countDown();
+        reader.join();
+
+        assertEquals("new", result.get());
+        assertEquals("new", handle.get());
+    }
+}
@@ -0,0 +1,81 @@
+package org.jcodings.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jcodings.Encoding;
+import org.jcodings.EncodingDB;
+import org.jcodings.Ptr;
+import org.jcodings.transcode.EConv;
+import org.jcodings.transcode.Transcoder;
+import org.jcodings.transcode.TranscoderDB;
+import org.junit.Test;
+
+public class TestTableStats {
+    @Test
+    public void testTables() throws Exception {
+        int[] table = ArrayReader.readIntArray("CR_Greek");
+        TableStats.Table stats = null;
+        for (TableStats.Table t : TableStats.getTables()) {
+            if (t.getName().equals("CR_Greek")) stats = t;
+        }
+        assertNotNull(stats);
+        assertEquals((long)table.length << 2, stats.getBytes());
+        assertEquals(getClass().getName(), stats.getRequester());
+        assertEquals(Thread.currentThread().getName(), stats.getThread());
+        assertTrue(stats.getLoads() >= 1 && stats.getLoadNanos() >= 0);
+        assertTrue(TableStats.getTableBytes() >= stats.getBytes());
+        assertEquals(TableStats.getTables().size(), TableStats.getTableCount());
+    }
+
+    @Test
+    public void testMappedTables() throws Exception {
+        File dir = Files.createTempDirectory("jcodings").toFile();
+        Transcoder.setMappedTableDirectory(dir);
+        try {
+            EConv econv = TranscoderDB.open("Shift_JIS", "UTF-8", 0);
+            byte[] src = "text".getBytes(), dest = new byte[16];
+            econv.convert(src, new Ptr(0), src.length, dest, new Ptr(0), dest.length, 0);
+
+            long mapped = 0;
+            for (TableStats.Table t : TableStats.getTables()) {
+                if (t.isOffHeap()) mapped += t.getBytes();
+            }
+            assertTrue(mapped > 0);
+            assertEquals(mapped, TableStats.getMappedBytes());
+        } finally {
+            Transcoder.setMappedTableDirectory(null);
+            for (File file : dir.listFiles()) file.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testInstances() throws Exception {
+        EncodingDB.getEncodings().get("IBM437".getBytes()).getEncoding();
+        assertTrue(TableStats.getEncodingInstances() > 0);
+        assertEquals(Encoding.getInstanceCount(), TableStats.getEncodingInstances());
+        TranscoderDB.getEntry("UTF-8".getBytes(), "UTF-16BE".getBytes()).getTranscoder();
+        assertTrue(TableStats.getTranscoderTables() > 0);
+        assertEquals(Transcoder.getTableCount(), TableStats.getTranscoderTables());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        TableStats.registerMBean();
+        TableStats.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(TableStats.MBEAN_NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(TableStats.getTableCount(), ((Integer)server.getAttribute(name, "TableCount")).intValue());
+        assertEquals(TableStats.getTableCount(), ((String[])server.getAttribute(name, "Tables")).length);
+    }
+}